@@ -0,0 +1,145 @@
+package ru.yandex.practicum.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Транспорт Feign с локальным кэшем ответов на GET. Для ответа 200 с ETag тело сохраняется по URL запроса,
+ * повторный GET того же URL уходит с If-None-Match, а ответ 304 подменяется сохраненным телом,
+ * так что клиенты Feign видят обычный ответ 200. Кэш ограничен по числу записей, вытесняются давно
+ * не использованные.
+ */
+@Slf4j
+public class ETagCachingClient implements Client, MeterBinder {
+
+    private final Client delegate;
+    private final Map<String, CachedResponse> responses;
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong fullResponseCount = new AtomicLong();
+
+    public ETagCachingClient(Client delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (request.httpMethod() != Request.HttpMethod.GET) {
+            return delegate.execute(request, options);
+        }
+
+        String url = request.url();
+        CachedResponse cached = get(url);
+        Request conditional = cached != null ? withIfNoneMatch(request, cached.eTag()) : request;
+        Response response = delegate.execute(conditional, options);
+
+        if (response.status() == 304 && cached != null) {
+            notModifiedCount.incrementAndGet();
+            response.close();
+            return cached.toResponse(request);
+        }
+
+        fullResponseCount.incrementAndGet();
+        String eTag = firstHeader(response, HttpHeaders.ETAG);
+        if (response.status() != 200 || eTag == null || response.body() == null) {
+            if (cached != null) {
+                remove(url);
+            }
+            return response;
+        }
+
+        byte[] body;
+        try (InputStream stream = response.body().asInputStream()) {
+            body = Util.toByteArray(stream);
+        }
+        put(url, new CachedResponse(eTag, response.headers(), body));
+        return response.toBuilder().body(body).build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("commerce.feign.etag.responses", notModifiedCount, AtomicLong::get)
+                .tag("result", "not_modified")
+                .description("GET responses served from the ETag cache after 304")
+                .register(registry);
+        FunctionCounter.builder("commerce.feign.etag.responses", fullResponseCount, AtomicLong::get)
+                .tag("result", "full")
+                .description("GET responses received with a full body")
+                .register(registry);
+        Gauge.builder("commerce.feign.etag.cache.size", this, ETagCachingClient::getCachedResponseCount)
+                .description("Responses currently held in the ETag cache")
+                .register(registry);
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    public long getFullResponseCount() {
+        return fullResponseCount.get();
+    }
+
+    public synchronized int getCachedResponseCount() {
+        return responses.size();
+    }
+
+    private synchronized CachedResponse get(String url) {
+        return responses.get(url);
+    }
+
+    private synchronized void put(String url, CachedResponse response) {
+        responses.put(url, response);
+    }
+
+    private synchronized void remove(String url) {
+        responses.remove(url);
+    }
+
+    private static Request withIfNoneMatch(Request request, String eTag) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.headers());
+        headers.put(HttpHeaders.IF_NONE_MATCH, List.of(eTag));
+        return Request.create(request.httpMethod(), request.url(), headers, request.body(), request.charset(),
+                request.requestTemplate());
+    }
+
+    private static String firstHeader(Response response, String name) {
+        Collection<String> values = response.headers().get(name);
+        return values == null || values.isEmpty() ? null : values.iterator().next();
+    }
+
+    private record CachedResponse(String eTag, Map<String, Collection<String>> headers, byte[] body) {
+
+        private Response toResponse(Request request) {
+            return Response.builder()
+                    .status(200)
+                    .reason("OK")
+                    .request(request)
+                    .headers(headers)
+                    .body(body)
+                    .build();
+        }
+    }
+}
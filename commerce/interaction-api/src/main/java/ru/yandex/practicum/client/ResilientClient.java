@@ -0,0 +1,426 @@
+package ru.yandex.practicum.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.config.CommerceFeignProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Транспорт Feign с защитой вызовов по сервисам: ограничение одновременных запросов, автомат
+ * по доле ошибок и необязательное дублирование медленных GET. Сервис определяется по хосту логического
+ * URL, поэтому клиент должен стоять перед балансировщиком. Отказ без обращения к сервису возвращается
+ * ответом 503, и вызывающий код обрабатывает его так же, как недоступность самого сервиса.
+ * Таймауты соединения и чтения задаются настройками клиентов Feign (spring.cloud.openfeign.client.config).
+ */
+@Slf4j
+public class ResilientClient implements Client, MeterBinder {
+
+    private final Client delegate;
+    private final CommerceFeignProperties properties;
+    private final Map<String, ServiceGuard> guards = new ConcurrentHashMap<>();
+    // дублирующие запросы выполняются в виртуальных потоках, пул платформенных потоков не нужен
+    private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile MeterRegistry meterRegistry;
+
+    public ResilientClient(Client delegate, CommerceFeignProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        String serviceId = URI.create(request.url()).getHost();
+        CommerceFeignProperties.Resilience settings = properties.resilienceFor(serviceId);
+        if (!settings.isEnabled()) {
+            return delegate.execute(request, options);
+        }
+
+        ServiceGuard guard = guards.get(serviceId);
+        if (guard == null) {
+            guard = addGuard(serviceId, settings);
+        }
+        CircuitBreaker.Pass pass = guard.breaker.tryPass(System.currentTimeMillis());
+        if (pass == CircuitBreaker.Pass.REJECTED) {
+            guard.circuitRejections.incrementAndGet();
+            return unavailable(request, "Circuit breaker for " + serviceId + " is open");
+        }
+        if (!guard.acquire()) {
+            guard.bulkheadRejections.incrementAndGet();
+            guard.breaker.release(pass);
+            return unavailable(request, "Too many concurrent calls to " + serviceId);
+        }
+
+        guard.calls.incrementAndGet();
+        boolean hedged = request.httpMethod() == Request.HttpMethod.GET && settings.getHedgeDelayMs() > 0;
+        try {
+            Response response = hedged
+                    ? executeHedged(request, options, guard, settings.getHedgeDelayMs())
+                    : executeDirect(request, options, guard);
+            guard.record(response.status() < 500, pass);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            guard.record(false, pass);
+            throw e;
+        }
+    }
+
+    /**
+     * Метрики регистрируются для уже известных сервисов и для каждого нового сервиса при первом вызове.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        guards.forEach((serviceId, guard) -> guard.bindTo(registry, serviceId));
+    }
+
+    /**
+     * Снимок состояния и счетчиков по всем сервисам, к которым были вызовы.
+     */
+    public Map<String, ClientStats> getStats() {
+        Map<String, ClientStats> stats = new TreeMap<>();
+        guards.forEach((serviceId, guard) -> stats.put(serviceId, guard.stats()));
+        return stats;
+    }
+
+    private ServiceGuard addGuard(String serviceId, CommerceFeignProperties.Resilience settings) {
+        ServiceGuard created = new ServiceGuard(settings);
+        ServiceGuard existing = guards.putIfAbsent(serviceId, created);
+        if (existing != null) {
+            return existing;
+        }
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            created.bindTo(registry, serviceId);
+        }
+        return created;
+    }
+
+    private Response executeDirect(Request request, Request.Options options, ServiceGuard guard) throws IOException {
+        try {
+            return delegate.execute(request, options);
+        } finally {
+            guard.permits.release();
+        }
+    }
+
+    /**
+     * Отправляет запрос и, если ответа нет дольше hedgeDelayMs, дублирует его при свободном месте
+     * в лимите сервиса. Возвращается первый успешно полученный ответ, ответ проигравшего запроса закрывается.
+     * Место в лимите занято каждым из запросов до его завершения, даже если ответ уже получен от другого.
+     */
+    private Response executeHedged(Request request, Request.Options options, ServiceGuard guard,
+                                   long hedgeDelayMs) throws IOException {
+        CompletableFuture<Response> primary = submit(request, options)
+                .whenComplete((response, error) -> guard.permits.release());
+        try {
+            return primary.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // ответа пока нет, пробуем дублировать
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.thenAccept(ResilientClient::closeQuietly);
+            throw new IOException("Interrupted while waiting for " + request.url(), e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+
+        if (!guard.permits.tryAcquire()) {
+            return await(primary, request);
+        }
+        guard.hedges.incrementAndGet();
+        CompletableFuture<Response> hedge = submit(request, options)
+                .whenComplete((response, error) -> guard.permits.release());
+
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        primary.whenComplete((response, error) -> complete(winner, failed, response, error));
+        hedge.whenComplete((response, error) -> {
+            if (complete(winner, failed, response, error)) {
+                guard.hedgeWins.incrementAndGet();
+            }
+        });
+        return await(winner, request);
+    }
+
+    private CompletableFuture<Response> submit(Request request, Request.Options options) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return delegate.execute(request, options);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, hedgeExecutor);
+    }
+
+    private static boolean complete(CompletableFuture<Response> winner, AtomicInteger failed,
+                                    Response response, Throwable error) {
+        if (error == null) {
+            if (winner.complete(response)) {
+                return true;
+            }
+            closeQuietly(response);
+        } else if (failed.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+        return false;
+    }
+
+    private static Response await(CompletableFuture<Response> future, Request request) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.thenAccept(ResilientClient::closeQuietly);
+            throw new IOException("Interrupted while waiting for " + request.url(), e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static IOException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UncheckedIOException unchecked) {
+            return unchecked.getCause();
+        }
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return new IOException(cause);
+    }
+
+    private static void closeQuietly(Response response) {
+        if (response != null) {
+            response.close();
+        }
+    }
+
+    private static Response unavailable(Request request, String reason) {
+        log.warn("[ResilientClient] {}, request {} {} rejected", reason, request.httpMethod(), request.url());
+        return Response.builder()
+                .status(503)
+                .reason(reason)
+                .request(request)
+                .headers(Map.of())
+                .body(new byte[0])
+                .build();
+    }
+
+    public record ClientStats(String circuitState, long calls, long failures, long bulkheadRejections,
+                              long circuitRejections, long hedges, long hedgeWins, int availablePermits) {
+    }
+
+    private static final class ServiceGuard {
+
+        private final Semaphore permits;
+        private final long acquireTimeoutMs;
+        private final CircuitBreaker breaker;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong bulkheadRejections = new AtomicLong();
+        private final AtomicLong circuitRejections = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong hedgeWins = new AtomicLong();
+
+        private ServiceGuard(CommerceFeignProperties.Resilience settings) {
+            this.permits = new Semaphore(settings.getMaxConcurrentCalls());
+            this.acquireTimeoutMs = settings.getAcquireTimeoutMs();
+            this.breaker = new CircuitBreaker(settings);
+        }
+
+        private boolean acquire() {
+            try {
+                return permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void record(boolean success, CircuitBreaker.Pass pass) {
+            if (!success) {
+                failures.incrementAndGet();
+            }
+            breaker.record(success, pass, System.currentTimeMillis());
+        }
+
+        // повторная регистрация того же счетчика возвращает уже существующий
+        private void bindTo(MeterRegistry registry, String serviceId) {
+            counter(registry, "commerce.feign.calls", serviceId, calls);
+            counter(registry, "commerce.feign.failures", serviceId, failures);
+            FunctionCounter.builder("commerce.feign.rejections", bulkheadRejections, AtomicLong::get)
+                    .tags("service", serviceId, "reason", "bulkhead")
+                    .register(registry);
+            FunctionCounter.builder("commerce.feign.rejections", circuitRejections, AtomicLong::get)
+                    .tags("service", serviceId, "reason", "circuit")
+                    .register(registry);
+            counter(registry, "commerce.feign.hedges", serviceId, hedges);
+            counter(registry, "commerce.feign.hedge.wins", serviceId, hedgeWins);
+            Gauge.builder("commerce.feign.available.permits", permits, Semaphore::availablePermits)
+                    .tag("service", serviceId)
+                    .register(registry);
+            // 0 - замкнут, 1 - пробный вызов, 2 - разомкнут
+            Gauge.builder("commerce.feign.circuit.state", breaker, b -> b.state().level)
+                    .tag("service", serviceId)
+                    .register(registry);
+        }
+
+        private static void counter(MeterRegistry registry, String name, String serviceId, AtomicLong value) {
+            FunctionCounter.builder(name, value, AtomicLong::get)
+                    .tag("service", serviceId)
+                    .register(registry);
+        }
+
+        private ClientStats stats() {
+            return new ClientStats(breaker.state().name(), calls.get(), failures.get(), bulkheadRejections.get(),
+                    circuitRejections.get(), hedges.get(), hedgeWins.get(), permits.availablePermits());
+        }
+    }
+
+    /**
+     * Автомат по доле ошибок в скользящем окне последних вызовов. После openDurationMs в разомкнутом
+     * состоянии пропускается один пробный вызов: успех замыкает автомат, ошибка размыкает снова.
+     * Состояние HALF_OPEN решает только пробный вызов; вызовы, начатые до размыкания, его не меняют.
+     */
+    private static final class CircuitBreaker {
+
+        private enum State {
+            CLOSED(0), OPEN(2), HALF_OPEN(1);
+
+            private final int level;
+
+            State(int level) {
+                this.level = level;
+            }
+        }
+
+        private enum Pass { REJECTED, CALL, TRIAL }
+
+        private final boolean[] window;
+        private final int minimumCalls;
+        private final int failureRateThreshold;
+        private final long openDurationMs;
+
+        private State state = State.CLOSED;
+        private int position;
+        private int recorded;
+        private int failed;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        private CircuitBreaker(CommerceFeignProperties.Resilience settings) {
+            this.window = new boolean[Math.max(1, settings.getSlidingWindowSize())];
+            this.minimumCalls = Math.min(settings.getMinimumCalls(), window.length);
+            this.failureRateThreshold = settings.getFailureRateThreshold();
+            this.openDurationMs = settings.getOpenDurationMs();
+        }
+
+        private synchronized Pass tryPass(long now) {
+            switch (state) {
+                case CLOSED -> {
+                    return Pass.CALL;
+                }
+                case OPEN -> {
+                    if (now - openedAt < openDurationMs) {
+                        return Pass.REJECTED;
+                    }
+                    state = State.HALF_OPEN;
+                    trialInFlight = true;
+                    return Pass.TRIAL;
+                }
+                default -> {
+                    if (trialInFlight) {
+                        return Pass.REJECTED;
+                    }
+                    trialInFlight = true;
+                    return Pass.TRIAL;
+                }
+            }
+        }
+
+        /**
+         * Пропуск, выданный tryPass, не был использован (например, вызов отклонен по лимиту).
+         */
+        private synchronized void release(Pass pass) {
+            if (pass == Pass.TRIAL && state == State.HALF_OPEN) {
+                trialInFlight = false;
+            }
+        }
+
+        private synchronized void record(boolean success, Pass pass, long now) {
+            if (pass == Pass.TRIAL) {
+                if (state == State.HALF_OPEN) {
+                    trialInFlight = false;
+                    if (success) {
+                        close();
+                    } else {
+                        open(now);
+                    }
+                }
+                return;
+            }
+            if (state != State.CLOSED) {
+                // вызов начался до размыкания
+                return;
+            }
+
+            if (recorded == window.length) {
+                if (window[position]) {
+                    failed--;
+                }
+            } else {
+                recorded++;
+            }
+            window[position] = !success;
+            if (!success) {
+                failed++;
+            }
+            position = (position + 1) % window.length;
+
+            if (recorded >= minimumCalls && failed * 100L >= (long) failureRateThreshold * recorded) {
+                log.warn("[ResilientClient] Circuit breaker opened after {} failures of {} calls", failed, recorded);
+                open(now);
+            }
+        }
+
+        private synchronized State state() {
+            return state;
+        }
+
+        private void open(long now) {
+            state = State.OPEN;
+            openedAt = now;
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            position = 0;
+            recorded = 0;
+            failed = 0;
+        }
+    }
+}
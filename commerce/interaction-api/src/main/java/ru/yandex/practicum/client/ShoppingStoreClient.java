@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import ru.yandex.practicum.dto.common.CursorPageResponse;
 import ru.yandex.practicum.dto.common.PageResponse;
 import ru.yandex.practicum.dto.shoppingstore.ProductDto;
 import ru.yandex.practicum.dto.shoppingstore.SetProductQuantityStateRequest;
@@ -26,6 +27,16 @@ public interface ShoppingStoreClient {
             @RequestParam(value = "sort", required = false) List<String> sort
     );
 
+    @GetMapping("/api/v1/shopping-store/cursor")
+    CursorPageResponse<ProductDto> getProductsByCategoryAfter(
+            @RequestParam("category") String category,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal
+    );
+
     @GetMapping("/api/v1/shopping-store/{productId}")
     ProductDto getProduct(@PathVariable("productId") UUID productId);
 
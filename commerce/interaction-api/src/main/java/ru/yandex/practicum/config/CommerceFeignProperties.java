@@ -0,0 +1,61 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("commerce.feign")
+public class CommerceFeignProperties {
+    private static final Resilience DEFAULT_RESILIENCE = new Resilience();
+
+    // транспорт запросов к сервисам, см. FeignClientConfig
+    private Transport transport = Transport.HC5;
+    // локальный кэш ответов на GET с повторным запросом через If-None-Match
+    private boolean etagCacheEnabled = true;
+    private int etagCacheMaxEntries = 1000;
+    // защита вызовов по имени сервиса; ключ default задает настройки сервисов без собственных,
+    // собственные настройки сервиса заменяют default целиком
+    private Map<String, Resilience> resilience = new HashMap<>();
+
+    public Resilience resilienceFor(String serviceId) {
+        Resilience own = resilience.get(serviceId);
+        if (own != null) {
+            return own;
+        }
+        return resilience.getOrDefault("default", DEFAULT_RESILIENCE);
+    }
+
+    public enum Transport {
+        // HttpURLConnection без пула соединений
+        DEFAULT,
+        // Apache HttpClient 5 с пулом соединений (spring.cloud.openfeign.httpclient)
+        HC5,
+        // JDK HttpClient с HTTP/2 (spring.cloud.openfeign.http2client и spring.cloud.openfeign.httpclient.http2)
+        HTTP2
+    }
+
+    @Getter
+    @Setter
+    public static class Resilience {
+        private boolean enabled = true;
+        // одновременных запросов к сервису, остальные ждут acquireTimeoutMs и получают 503
+        private int maxConcurrentCalls = 50;
+        private long acquireTimeoutMs = 0;
+        // автомат размыкается, когда среди последних slidingWindowSize вызовов (не меньше minimumCalls)
+        // доля ошибок достигла failureRateThreshold процентов; ошибка - исключение ввода-вывода или 5xx
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private int failureRateThreshold = 50;
+        // сколько автомат остается разомкнутым до пробного вызова
+        private long openDurationMs = 5000;
+        // через сколько отправить дублирующий GET, если ответа еще нет; 0 - без дублирования
+        private long hedgeDelayMs = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.config;
+
+import feign.Client;
+import feign.hc5.ApacheHttp5Client;
+import feign.http2client.Http2Client;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.cloud.openfeign.loadbalancer.LoadBalancerFeignRequestTransformer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.client.ETagCachingClient;
+import ru.yandex.practicum.client.ResilientClient;
+
+import java.net.http.HttpClient;
+import java.util.List;
+
+/**
+ * Транспорт для всех клиентов Feign сервисов commerce. Заменяет стандартный клиент балансировщика
+ * цепочкой: кэш ETag'ов, защита вызовов, балансировщик. Обе обертки стоят перед балансировщиком:
+ * кэш работает по логическому URL сервиса и переживает переход запроса на другой экземпляр,
+ * а лимиты и автомат считаются на сервис целиком. Сетевой транспорт выбирается commerce.feign.transport.
+ */
+@Slf4j
+@Configuration
+public class FeignClientConfig {
+
+    @Bean
+    public Client feignClient(LoadBalancerClient loadBalancerClient,
+                              LoadBalancerClientFactory loadBalancerClientFactory,
+                              List<LoadBalancerFeignRequestTransformer> transformers,
+                              CommerceFeignProperties properties,
+                              ObjectProvider<CloseableHttpClient> apacheHttpClient,
+                              ObjectProvider<HttpClient> jdkHttpClient,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        Client transport = switch (properties.getTransport()) {
+            // пул и keep-alive настраиваются в spring.cloud.openfeign.httpclient, клиент создает Spring Cloud OpenFeign
+            case HC5 -> new ApacheHttp5Client(apacheHttpClient.getObject());
+            // одно соединение на экземпляр сервиса с мультиплексированием запросов; клиент создает Spring Cloud
+            // OpenFeign при spring.cloud.openfeign.http2client.enabled, иначе создается клиент JDK по умолчанию
+            case HTTP2 -> new Http2Client(jdkHttpClient.getIfAvailable(() -> HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .build()));
+            case DEFAULT -> new Client.Default(null, null);
+        };
+        log.info("Feign transport: {}", properties.getTransport());
+
+        ResilientClient resilientClient = new ResilientClient(new FeignBlockingLoadBalancerClient(transport,
+                loadBalancerClient, loadBalancerClientFactory, transformers), properties);
+        // обертки не являются бинами, поэтому метрики привязываются здесь
+        meterRegistry.ifAvailable(resilientClient::bindTo);
+        if (!properties.isEtagCacheEnabled()) {
+            return resilientClient;
+        }
+        ETagCachingClient eTagCachingClient = new ETagCachingClient(resilientClient, properties.getEtagCacheMaxEntries());
+        meterRegistry.ifAvailable(eTagCachingClient::bindTo);
+        return eTagCachingClient;
+    }
+}
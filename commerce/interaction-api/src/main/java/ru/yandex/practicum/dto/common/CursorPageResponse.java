@@ -0,0 +1,21 @@
+package ru.yandex.practicum.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int pageSize;
+    // курсор следующей страницы, null на последней странице
+    private String nextCursor;
+    private boolean last;
+    // заполняется только по запросу
+    private Long totalElements;
+    private List<PageResponse.SortInfo> sort;
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import feign.hc5.ApacheHttp5Client;
+import feign.http2client.Http2Client;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.config.CommerceFeignProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вызов добавления товара в корзину (PUT /api/v1/shopping-cart с JSON-телом) через транспорты
+ * commerce.feign.transport против локального HTTP-сервера: DEFAULT - прежний Client.Default
+ * (HttpURLConnection, keep-alive только во внутреннем кэше JDK на 5 соединений), HC5 - Apache HttpClient 5
+ * с пулом как в конфигурации сервисов, HTTP2 - JDK HttpClient. Сервер тестовый HttpServer JDK без h2c,
+ * поэтому HTTP2 здесь работает по HTTP/1.1 и показывает только стоимость клиента и его пула.
+ * singleCaller - задержка одиночного вызова, concurrentCallers - пропускная способность и задержка
+ * при 16 одновременных вызывающих, где у Client.Default заканчиваются переиспользуемые соединения.
+ * serverDelayMs имитирует время обработки запроса сервисом.
+ * Запуск: main этого класса из IDE или
+ * mvn -pl commerce/interaction-api test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.FeignTransportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeignTransportBenchmark {
+
+    private static final Request.Options OPTIONS = new Request.Options(1, TimeUnit.SECONDS, 5, TimeUnit.SECONDS, true);
+    private static final byte[] REQUEST_BODY = ("{\"" + UUID.randomUUID() + "\":1}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESPONSE_BODY = ("{\"shoppingCartId\":\"" + UUID.randomUUID() + "\",\"products\":{\""
+            + UUID.randomUUID() + "\":3,\"" + UUID.randomUUID() + "\":1}}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"DEFAULT", "HC5", "HTTP2"})
+    private CommerceFeignProperties.Transport transport;
+
+    @Param({"0", "2"})
+    private int serverDelayMs;
+
+    private HttpServer server;
+    private CloseableHttpClient apacheHttpClient;
+    private HttpClient jdkHttpClient;
+    private Client client;
+    private Request request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+
+        client = switch (transport) {
+            case DEFAULT -> new Client.Default(null, null);
+            case HC5 -> {
+                // как spring.cloud.openfeign.httpclient в конфигурации сервисов
+                apacheHttpClient = HttpClients.custom()
+                        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                                .setMaxConnTotal(200)
+                                .setMaxConnPerRoute(50)
+                                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
+                                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                                .build())
+                        .build();
+                yield new ApacheHttp5Client(apacheHttpClient);
+            }
+            case HTTP2 -> {
+                jdkHttpClient = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .build();
+                yield new Http2Client(jdkHttpClient);
+            }
+        };
+
+        String url = "http://localhost:" + server.getAddress().getPort() + "/api/v1/shopping-cart?username=bench";
+        Map<String, Collection<String>> headers = Map.of(
+                "Content-Type", List.of("application/json"),
+                "Accept", List.of("application/json"));
+        request = Request.create(Request.HttpMethod.PUT, url, headers, REQUEST_BODY, StandardCharsets.UTF_8, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (apacheHttpClient != null) {
+            apacheHttpClient.close();
+        }
+        if (jdkHttpClient != null) {
+            jdkHttpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] singleCaller() throws IOException {
+        return call();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public byte[] concurrentCallers() throws IOException {
+        return call();
+    }
+
+    private byte[] call() throws IOException {
+        // тело дочитывается и закрывается, иначе соединение не вернется в пул
+        try (Response response = client.execute(request, OPTIONS)) {
+            if (response.status() != 200) {
+                throw new IllegalStateException("Unexpected status: " + response.status());
+            }
+            return Util.toByteArray(response.body().asInputStream());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            if (serverDelayMs > 0) {
+                Thread.sleep(serverDelayMs);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE_BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RESPONSE_BODY);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeignTransportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
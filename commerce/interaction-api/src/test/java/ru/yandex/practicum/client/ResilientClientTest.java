@@ -0,0 +1,200 @@
+package ru.yandex.practicum.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.config.CommerceFeignProperties;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Проверка защиты вызовов против локального HTTP-сервера с управляемой задержкой и статусом ответа.
+ */
+class ResilientClientTest {
+
+    private static final String SERVICE_ID = "localhost";
+    private static final Request.Options OPTIONS = new Request.Options(1, TimeUnit.SECONDS, 5, TimeUnit.SECONDS, true);
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    // задержка ответа в миллисекундах по порядковому номеру запроса (с единицы)
+    private volatile IntUnaryOperator delayMs = n -> 0;
+    private volatile int status = 200;
+
+    private HttpServer server;
+    private ExecutorService callers;
+    private CommerceFeignProperties.Resilience settings;
+    private ResilientClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+        callers = Executors.newVirtualThreadPerTaskExecutor();
+
+        settings = new CommerceFeignProperties.Resilience();
+        CommerceFeignProperties properties = new CommerceFeignProperties();
+        properties.getResilience().put(SERVICE_ID, settings);
+        client = new ResilientClient(new Client.Default(null, null), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    void opensBreakerAfterFailuresAndRejectsWithoutCallingService() throws IOException {
+        settings.setSlidingWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setFailureRateThreshold(50);
+        settings.setOpenDurationMs(60_000);
+        status = 500;
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(call("/products")).isEqualTo(500);
+        }
+        assertThat(call("/products")).isEqualTo(503);
+
+        assertThat(received.get()).isEqualTo(4);
+        ResilientClient.ClientStats stats = client.getStats().get(SERVICE_ID);
+        assertThat(stats.circuitState()).isEqualTo("OPEN");
+        assertThat(stats.failures()).isEqualTo(4);
+        assertThat(stats.circuitRejections()).isEqualTo(1);
+    }
+
+    @Test
+    void letsOnlyTrialCallThroughAndClosesBreakerOnItsSuccess() throws Exception {
+        settings.setSlidingWindowSize(2);
+        settings.setMinimumCalls(2);
+        settings.setOpenDurationMs(100);
+        status = 500;
+        call("/products");
+        call("/products");
+        assertThat(client.getStats().get(SERVICE_ID).circuitState()).isEqualTo("OPEN");
+
+        status = 200;
+        delayMs = n -> 300;
+        Thread.sleep(150);
+        Future<Integer> trial = callers.submit(() -> call("/products"));
+        await().atMost(Duration.ofSeconds(2)).until(() -> inFlight.get() == 1);
+
+        // пока пробный вызов не завершен, остальные отклоняются без обращения к сервису
+        assertThat(call("/products")).isEqualTo(503);
+        assertThat(client.getStats().get(SERVICE_ID).circuitState()).isEqualTo("HALF_OPEN");
+
+        assertThat(trial.get(2, TimeUnit.SECONDS)).isEqualTo(200);
+        assertThat(client.getStats().get(SERVICE_ID).circuitState()).isEqualTo("CLOSED");
+        assertThat(received.get()).isEqualTo(3);
+    }
+
+    @Test
+    void bulkheadCapsConcurrentCallsToService() throws Exception {
+        settings.setMaxConcurrentCalls(2);
+        delayMs = n -> 300;
+
+        List<Future<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(callers.submit(() -> call("/products")));
+        }
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<Integer> call : calls) {
+            statuses.add(call.get(5, TimeUnit.SECONDS));
+        }
+
+        assertThat(statuses).filteredOn(s -> s == 200).hasSize(2);
+        assertThat(statuses).filteredOn(s -> s == 503).hasSize(4);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        ResilientClient.ClientStats stats = client.getStats().get(SERVICE_ID);
+        assertThat(stats.bulkheadRejections()).isEqualTo(4);
+        assertThat(stats.availablePermits()).isEqualTo(2);
+        // отказ по лимиту не считается ошибкой сервиса
+        assertThat(stats.circuitState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void hedgeAnswersSlowGetAndPrimaryKeepsPermitUntilItEnds() throws IOException {
+        settings.setMaxConcurrentCalls(4);
+        settings.setHedgeDelayMs(50);
+        delayMs = n -> n == 1 ? 1000 : 0;
+
+        long started = System.nanoTime();
+        assertThat(call("/products/1")).isEqualTo(200);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(elapsedMs).isLessThan(800);
+        ResilientClient.ClientStats stats = client.getStats().get(SERVICE_ID);
+        assertThat(stats.hedges()).isEqualTo(1);
+        assertThat(stats.hedgeWins()).isEqualTo(1);
+        // основной запрос еще выполняется и занимает место в лимите
+        assertThat(stats.availablePermits()).isEqualTo(3);
+
+        await().atMost(Duration.ofSeconds(3))
+                .until(() -> client.getStats().get(SERVICE_ID).availablePermits() == 4);
+        assertThat(received.get()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotHedgeFastGet() throws IOException {
+        settings.setHedgeDelayMs(200);
+
+        assertThat(call("/products/1")).isEqualTo(200);
+
+        ResilientClient.ClientStats stats = client.getStats().get(SERVICE_ID);
+        assertThat(stats.hedges()).isZero();
+        assertThat(stats.availablePermits()).isEqualTo(settings.getMaxConcurrentCalls());
+        assertThat(received.get()).isEqualTo(1);
+    }
+
+    private int call(String path) throws IOException {
+        Request request = Request.create(Request.HttpMethod.GET,
+                "http://" + SERVICE_ID + ":" + server.getAddress().getPort() + path,
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        try (Response response = client.execute(request, OPTIONS)) {
+            return response.status();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int number = received.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(delayMs.applyAsInt(number));
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
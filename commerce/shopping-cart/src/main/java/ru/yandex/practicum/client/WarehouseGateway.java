@@ -0,0 +1,45 @@
+package ru.yandex.practicum.client;
+
+import feign.FeignException;
+import feign.RetryableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.dto.shoppingcart.ShoppingCartDto;
+import ru.yandex.practicum.exception.InsufficientStockException;
+import ru.yandex.practicum.exception.WarehouseUnavailableException;
+
+import java.util.Map;
+
+/**
+ * Вызовы склада из корзины. Таймауты, лимит одновременных запросов и автомат задаются общими настройками
+ * клиентов Feign (commerce.feign.resilience.warehouse), отказ по ним приходит ответом 503.
+ * Недоступность склада (таймаут, ошибка соединения, 5xx) не выдается за нехватку товара.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarehouseGateway {
+
+    private final WarehouseClient warehouseClient;
+
+    public void checkAvailability(Map<String, Integer> products) {
+        // идентификатор корзины склад при проверке не использует
+        ShoppingCartDto request = new ShoppingCartDto();
+        request.setProducts(products);
+
+        try {
+            warehouseClient.checkProductQuantityEnoughForShoppingCart(request);
+        } catch (RetryableException e) {
+            log.error("[WarehouseGateway] Warehouse call failed: {}", e.getMessage());
+            throw new WarehouseUnavailableException(e.getMessage());
+        } catch (FeignException e) {
+            if (e.status() >= 500) {
+                log.error("[WarehouseGateway] Warehouse responded with status {}", e.status());
+                throw new WarehouseUnavailableException("status " + e.status());
+            }
+            log.warn("[WarehouseGateway] Warehouse check failed: {}", e.getMessage());
+            throw new InsufficientStockException("Not enough products in warehouse");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.yandex.practicum.repository.CartRepository;
+
+import java.util.List;
+
+/**
+ * Условный GET корзины. До вызова контроллера читается только версия корзины: при актуальном
+ * If-None-Match отвечаем 304, не загружая позиции. Пока у пользователя нет ровно одной корзины,
+ * запрос без изменений уходит в контроллер.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartETagInterceptor implements HandlerInterceptor {
+
+    private final CartRepository cartRepository;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String username = request.getParameter("username");
+        if (!HttpMethod.GET.matches(request.getMethod()) || username == null || username.isBlank()) {
+            return true;
+        }
+
+        List<CartRepository.CartVersion> versions = cartRepository.findVersionsByUsername(username);
+        if (versions.size() != 1) {
+            return true;
+        }
+        return !new ServletWebRequest(request, response).checkNotModified(versions.get(0).eTag());
+    }
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -45,6 +46,18 @@ public class Cart {
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    // меняется при каждом изменении корзины, из нее строится ETag корзины
+    @Version
+    private Long version;
+
+    /**
+     * Помечает корзину измененной, чтобы при сбросе выросла версия: изменения позиций
+     * сами по себе строку корзины не меняют.
+     */
+    public void markModified() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
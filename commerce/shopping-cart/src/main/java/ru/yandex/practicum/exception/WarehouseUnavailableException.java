@@ -0,0 +1,11 @@
+package ru.yandex.practicum.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class WarehouseUnavailableException extends BaseException {
+    public WarehouseUnavailableException(String reason) {
+        super(HttpStatus.SERVICE_UNAVAILABLE,
+                "Warehouse is unavailable: " + reason,
+                "Product availability cannot be checked right now, please try again later");
+    }
+}
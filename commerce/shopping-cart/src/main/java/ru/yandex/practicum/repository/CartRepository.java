@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.entity.Cart;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,4 +22,18 @@ public interface CartRepository extends JpaRepository<Cart, UUID> {
     // Метод для получения только активной корзины с товарами (используется для операций изменения)
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.username = :username AND c.status = 'ACTIVE'")
     Optional<Cart> findActiveCartWithItems(@Param("username") String username);
+
+    // Версии корзин пользователя без загрузки позиций, для ответа 304 на условный GET
+    @Query("SELECT c.shoppingCartId AS shoppingCartId, c.version AS version FROM Cart c WHERE c.username = :username")
+    List<CartVersion> findVersionsByUsername(@Param("username") String username);
+
+    interface CartVersion {
+        UUID getShoppingCartId();
+
+        Long getVersion();
+
+        default String eTag() {
+            return "\"" + getShoppingCartId() + "-" + getVersion() + "\"";
+        }
+    }
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package ru.yandex.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.dto.shoppingcart.ChangeProductQuantityRequest;
 import ru.yandex.practicum.dto.shoppingcart.ShoppingCartDto;
 import ru.yandex.practicum.entity.Cart;
@@ -11,20 +14,19 @@ import ru.yandex.practicum.entity.CartItem;
 import ru.yandex.practicum.exception.CartNotFoundException;
 import ru.yandex.practicum.exception.NotAuthorizedUserException;
 import ru.yandex.practicum.exception.NoProductsInShoppingCartException;
-import ru.yandex.practicum.exception.InsufficientStockException;
 import ru.yandex.practicum.exception.CartDeactivatedException;
 import ru.yandex.practicum.mapper.ShoppingCartMapper;
 import ru.yandex.practicum.repository.CartRepository;
-import ru.yandex.practicum.repository.CartItemRepository;
-import ru.yandex.practicum.client.WarehouseClient;
+import ru.yandex.practicum.client.WarehouseGateway;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -32,10 +34,12 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class CartService {
 
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
     private final ShoppingCartMapper shoppingCartMapper;
-    private final WarehouseClient warehouseClient;
+    private final WarehouseGateway warehouseGateway;
+    private final TransactionTemplate transactionTemplate;
 
     public ShoppingCartDto getShoppingCart(String username) {
         log.info("[CartService] Getting shopping cart for user: {}", username);
@@ -70,7 +74,13 @@ public class CartService {
         }
     }
 
-    @Transactional
+    /**
+     * Проверка на складе выполняется до транзакции, чтобы медленный склад не удерживал соединение с БД.
+     * Изменение корзины идет короткой транзакцией; если корзину параллельно изменил другой запрос,
+     * транзакция повторяется с перечитанной корзиной (количества задаются абсолютно, поэтому
+     * результат проверки склада остается в силе).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ShoppingCartDto addProductsToCart(String username, Map<String, Integer> products) {
         log.info("[CartService] Adding {} products to cart for user: {}",
                 products.size(), username);
@@ -80,125 +90,119 @@ public class CartService {
 
         long startTime = System.currentTimeMillis();
         try {
-            // Используем метод, который возвращает только активную корзину
-            Cart cart = cartRepository.findActiveCartWithItems(username)
-                    .orElseGet(() -> {
-                        log.info("[CartService] Creating new cart for adding products, user: {}", username);
-                        return createNewCart(username);
-                    });
-
-            log.debug("[CartService] Found active cart ID: {} with {} items",
-                    cart.getShoppingCartId(),
-                    cart.getItems() != null ? cart.getItems().size() : 0);
+            Map<String, Integer> validProducts = filterValidProducts(products);
 
-            // Проверяем, что корзина активна
-            if (cart.getStatus() != Cart.CartStatus.ACTIVE) {
-                log.error("[CartService] Cannot add products to deactivated cart for user: {} with ID: {}",
-                        username, cart.getShoppingCartId());
-                throw new CartDeactivatedException(username, cart.getShoppingCartId());
+            if (!validProducts.isEmpty()) {
+                log.debug("[CartService] Checking product availability with warehouse service");
+                warehouseGateway.checkAvailability(validProducts);
+                log.debug("[CartService] All products are available in warehouse");
             }
 
-            int addedCount = 0;
-            int updatedCount = 0;
-
-            // Проверяем доступность товаров на складе
-            Map<String, Integer> validProducts = new HashMap<>();
-            for (Map.Entry<String, Integer> entry : products.entrySet()) {
-                UUID productId;
+            for (int attempt = 1; ; attempt++) {
                 try {
-                    productId = UUID.fromString(entry.getKey());
-                    log.debug("[CartService] Validating product: {}, quantity: {}",
-                            productId, entry.getValue());
-                } catch (IllegalArgumentException e) {
-                    log.warn("[CartService] Invalid UUID format: {}, skipping", entry.getKey());
-                    continue;
-                }
-
-                Integer targetQuantity = entry.getValue();
-
-                if (targetQuantity <= 0) {
-                    log.warn("[CartService] Invalid quantity {} for product {}, skipping",
-                            targetQuantity, productId);
-                    continue;
+                    ShoppingCartDto result = transactionTemplate.execute(status -> applyProducts(username, validProducts));
+
+                    long duration = System.currentTimeMillis() - startTime;
+                    log.info("[CartService] Products added successfully for user: {}, total time: {} ms",
+                            username, duration);
+                    return result;
+                } catch (OptimisticLockingFailureException e) {
+                    if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("[CartService] Cart of user {} changed concurrently, retrying (attempt {})",
+                            username, attempt);
                 }
-
-                // Добавляем в валидные продукты для проверки на складе
-                validProducts.put(entry.getKey(), targetQuantity);
             }
 
-            if (!validProducts.isEmpty()) {
-                // Создаем временную корзину для проверки доступности товаров
-                ShoppingCartDto tempCart = new ShoppingCartDto();
-                tempCart.setShoppingCartId(cart.getShoppingCartId());
-                tempCart.setProducts(validProducts);
+        } catch (Exception e) {
+            log.error("[CartService] Error adding products to cart for user: {}", username, e);
+            throw e;
+        }
+    }
 
-                try {
-                    // Проверяем доступность товаров через Warehouse сервис
-                    log.debug("[CartService] Checking product availability with warehouse service");
-                    warehouseClient.checkProductQuantityEnoughForShoppingCart(tempCart);
-                    log.debug("[CartService] All products are available in warehouse");
-                } catch (Exception e) {
-                    log.error("[CartService] Warehouse check failed: {}", e.getMessage());
-                    throw new InsufficientStockException("Not enough products in warehouse");
-                }
+    private Map<String, Integer> filterValidProducts(Map<String, Integer> products) {
+        Map<String, Integer> validProducts = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : products.entrySet()) {
+            UUID productId;
+            try {
+                productId = UUID.fromString(entry.getKey());
+                log.debug("[CartService] Validating product: {}, quantity: {}",
+                        productId, entry.getValue());
+            } catch (IllegalArgumentException e) {
+                log.warn("[CartService] Invalid UUID format: {}, skipping", entry.getKey());
+                continue;
             }
 
-            // Добавляем товары в корзину после успешной проверки
-            for (Map.Entry<String, Integer> entry : validProducts.entrySet()) {
-                UUID productId = UUID.fromString(entry.getKey());
-                Integer targetQuantity = entry.getValue();
-
-                Optional<CartItem> existingItem = cartItemRepository.findByCartShoppingCartIdAndProductId(
-                        cart.getShoppingCartId(), productId);
-
-                if (existingItem.isPresent()) {
-                    CartItem cartItem = existingItem.get();
-                    int oldQuantity = cartItem.getQuantity();
-                    log.info("[CartService] Updating product {} quantity from {} to {}",
-                            productId, oldQuantity, targetQuantity);
-                    cartItem.setQuantity(targetQuantity);
-                    cartItemRepository.save(cartItem);
-                    updatedCount++;
-                } else {
-                    log.info("[CartService] Adding new product {} with quantity {}",
-                            productId, targetQuantity);
-                    CartItem newItem = new CartItem();
-                    newItem.setCart(cart);
-                    newItem.setProductId(productId);
-                    newItem.setQuantity(targetQuantity);
-                    cartItemRepository.save(newItem);
-
-                    if (cart.getItems() == null) {
-                        cart.setItems(new ArrayList<>());
-                    }
-                    cart.getItems().add(newItem);
-                    addedCount++;
-                }
-            }
+            Integer targetQuantity = entry.getValue();
 
-            cartRepository.save(cart);
-            log.debug("[CartService] Cart saved, ID: {}", cart.getShoppingCartId());
+            if (targetQuantity == null || targetQuantity <= 0) {
+                log.warn("[CartService] Invalid quantity {} for product {}, skipping",
+                        targetQuantity, productId);
+                continue;
+            }
 
-            Cart updatedCart = cartRepository.findActiveCartWithItems(username)
-                    .orElseThrow(() -> {
-                        log.error("[CartService] Cart not found after update for user: {}", username);
-                        return new CartNotFoundException(username, cart.getShoppingCartId());
-                    });
+            validProducts.put(entry.getKey(), targetQuantity);
+        }
+        return validProducts;
+    }
 
-            ShoppingCartDto result = shoppingCartMapper.toDto(updatedCart);
+    private ShoppingCartDto applyProducts(String username, Map<String, Integer> validProducts) {
+        // Используем метод, который возвращает только активную корзину
+        Cart cart = cartRepository.findActiveCartWithItems(username)
+                .orElseGet(() -> {
+                    log.info("[CartService] Creating new cart for adding products, user: {}", username);
+                    return createNewCart(username);
+                });
+
+        log.debug("[CartService] Found active cart ID: {} with {} items",
+                cart.getShoppingCartId(),
+                cart.getItems() != null ? cart.getItems().size() : 0);
+
+        // Проверяем, что корзина активна
+        if (cart.getStatus() != Cart.CartStatus.ACTIVE) {
+            log.error("[CartService] Cannot add products to deactivated cart for user: {} with ID: {}",
+                    username, cart.getShoppingCartId());
+            throw new CartDeactivatedException(username, cart.getShoppingCartId());
+        }
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("[CartService] Products added successfully. Added: {}, Updated: {}, Total time: {} ms",
-                    addedCount, updatedCount, duration);
-            log.debug("[CartService] Final cart state for user {}: {} items",
-                    username, updatedCart.getItems().size());
+        int addedCount = 0;
+        int updatedCount = 0;
+
+        // Добавляем товары в уже загруженную корзину: новые позиции сохраняются каскадом
+        // одним пакетом при фиксации, без поиска и сохранения каждой позиции отдельно
+        Map<UUID, CartItem> itemsByProduct = indexItems(cart);
+        for (Map.Entry<String, Integer> entry : validProducts.entrySet()) {
+            UUID productId = UUID.fromString(entry.getKey());
+            Integer targetQuantity = entry.getValue();
+
+            CartItem existingItem = itemsByProduct.get(productId);
+            if (existingItem != null) {
+                log.debug("[CartService] Updating product {} quantity from {} to {}",
+                        productId, existingItem.getQuantity(), targetQuantity);
+                existingItem.setQuantity(targetQuantity);
+                updatedCount++;
+            } else {
+                log.debug("[CartService] Adding new product {} with quantity {}",
+                        productId, targetQuantity);
+                CartItem newItem = new CartItem();
+                newItem.setCart(cart);
+                newItem.setProductId(productId);
+                newItem.setQuantity(targetQuantity);
+                cart.getItems().add(newItem);
+                itemsByProduct.put(productId, newItem);
+                addedCount++;
+            }
+        }
 
-            return result;
+        // версия корзины растет при каждом изменении, конкурентное изменение завершится ошибкой при фиксации
+        cart.markModified();
+        log.debug("[CartService] Cart updated, ID: {}. Added: {}, Updated: {}",
+                cart.getShoppingCartId(), addedCount, updatedCount);
+        log.debug("[CartService] Final cart state for user {}: {} items",
+                username, cart.getItems().size());
 
-        } catch (Exception e) {
-            log.error("[CartService] Error adding products to cart for user: {}", username, e);
-            throw e;
-        }
+        return shoppingCartMapper.toDto(cart);
     }
 
     @Transactional
@@ -258,33 +262,26 @@ public class CartService {
                 throw new NoProductsInShoppingCartException();
             }
 
-            List<UUID> cartProductIds = cart.getItems().stream()
-                    .map(CartItem::getProductId)
-                    .collect(Collectors.toList());
-
-            boolean allProductsExist = productIds.stream()
-                    .allMatch(cartProductIds::contains);
+            Map<UUID, CartItem> itemsByProduct = indexItems(cart);
+            boolean allProductsExist = itemsByProduct.keySet().containsAll(productIds);
 
             if (!allProductsExist) {
                 log.warn("[CartService] Not all products exist in cart. Requested: {}, Available: {}",
-                        productIds, cartProductIds);
+                        productIds, itemsByProduct.keySet());
                 throw new NoProductsInShoppingCartException();
             }
 
+            // Позиции удаляются из загруженной коллекции, orphanRemoval удаляет строки при фиксации
             log.debug("[CartService] Removing products from cart ID: {}", cart.getShoppingCartId());
-            cartItemRepository.deleteByCartIdAndProductIds(cart.getShoppingCartId(), productIds);
+            Set<UUID> removedIds = new HashSet<>(productIds);
+            cart.getItems().removeIf(item -> removedIds.contains(item.getProductId()));
+            cart.markModified();
 
-            Cart updatedCart = cartRepository.findActiveCartWithItems(username)
-                    .orElseThrow(() -> {
-                        log.error("[CartService] Cart not found after removal for user: {}", username);
-                        return new CartNotFoundException(username, cart.getShoppingCartId());
-                    });
-
-            ShoppingCartDto result = shoppingCartMapper.toDto(updatedCart);
+            ShoppingCartDto result = shoppingCartMapper.toDto(cart);
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("[CartService] Products removed successfully. Remaining items: {}, Time: {} ms",
-                    updatedCart.getItems().size(), duration);
+                    cart.getItems().size(), duration);
 
             return result;
         } catch (Exception e) {
@@ -316,34 +313,27 @@ public class CartService {
                 throw new CartDeactivatedException(username, cart.getShoppingCartId());
             }
 
-            CartItem cartItem = cartItemRepository.findByCartShoppingCartIdAndProductId(
-                            cart.getShoppingCartId(), request.getProductId())
-                    .orElseThrow(() -> {
-                        log.warn("[CartService] Product {} not found in cart for user: {}",
-                                request.getProductId(), username);
-                        return new NoProductsInShoppingCartException();
-                    });
+            CartItem cartItem = indexItems(cart).get(request.getProductId());
+            if (cartItem == null) {
+                log.warn("[CartService] Product {} not found in cart for user: {}",
+                        request.getProductId(), username);
+                throw new NoProductsInShoppingCartException();
+            }
 
             log.debug("[CartService] Current quantity for product {}: {}",
                     request.getProductId(), cartItem.getQuantity());
 
             if (request.getNewQuantity() <= 0) {
                 log.info("[CartService] Removing product {} from cart (quantity <= 0)", request.getProductId());
-                cartItemRepository.delete(cartItem);
+                cart.getItems().remove(cartItem);
             } else {
                 log.info("[CartService] Updating product {} quantity from {} to {}",
                         request.getProductId(), cartItem.getQuantity(), request.getNewQuantity());
                 cartItem.setQuantity(request.getNewQuantity());
-                cartItemRepository.save(cartItem);
             }
+            cart.markModified();
 
-            Cart updatedCart = cartRepository.findActiveCartWithItems(username)
-                    .orElseThrow(() -> {
-                        log.error("[CartService] Cart not found after quantity change for user: {}", username);
-                        return new CartNotFoundException(username, cart.getShoppingCartId());
-                    });
-
-            ShoppingCartDto result = shoppingCartMapper.toDto(updatedCart);
+            ShoppingCartDto result = shoppingCartMapper.toDto(cart);
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("[CartService] Product quantity changed successfully in {} ms", duration);
@@ -355,6 +345,17 @@ public class CartService {
         }
     }
 
+    private Map<UUID, CartItem> indexItems(Cart cart) {
+        if (cart.getItems() == null) {
+            cart.setItems(new ArrayList<>());
+        }
+        Map<UUID, CartItem> itemsByProduct = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            itemsByProduct.put(item.getProductId(), item);
+        }
+        return itemsByProduct;
+    }
+
     private Cart createNewCart(String username) {
         log.debug("[CartService] Creating new cart entity for user: {}", username);
 
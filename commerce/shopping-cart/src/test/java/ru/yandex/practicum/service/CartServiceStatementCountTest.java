@@ -0,0 +1,149 @@
+package ru.yandex.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.client.WarehouseGateway;
+import ru.yandex.practicum.dto.shoppingcart.ChangeProductQuantityRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на операцию с корзиной по статистике Hibernate. Операция читает корзину
+ * одним запросом, а позиции пишет пакетами, поэтому число запросов не зависит от числа позиций.
+ * Склад заменен заглушкой.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class CartServiceStatementCountTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private WarehouseGateway warehouseGateway;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getExistingCartIsOneQuery() {
+        String username = newCart(5);
+
+        assertThat(statementsOf(() -> cartService.getShoppingCart(username))).isEqualTo(1);
+    }
+
+    @Test
+    void addProductsDoesNotDependOnNumberOfProducts() {
+        String small = newCart(1);
+        String large = newCart(1);
+
+        long addOne = statementsOf(() -> cartService.addProductsToCart(small, products(1)));
+        long addTen = statementsOf(() -> cartService.addProductsToCart(large, products(10)));
+
+        // чтение корзины, пакет вставки позиций, версия корзины
+        assertThat(addOne).isLessThanOrEqualTo(3);
+        assertThat(addTen).isEqualTo(addOne);
+    }
+
+    @Test
+    void changeQuantityDoesNotDependOnCartSize() {
+        String small = newCart(1);
+        String large = newCart(10);
+        UUID smallProduct = firstProduct(small);
+        UUID largeProduct = firstProduct(large);
+
+        long inSmall = statementsOf(() -> cartService.changeProductQuantity(small,
+                new ChangeProductQuantityRequest(smallProduct, 7)));
+        long inLarge = statementsOf(() -> cartService.changeProductQuantity(large,
+                new ChangeProductQuantityRequest(largeProduct, 7)));
+
+        // чтение корзины, обновление позиции, версия корзины
+        assertThat(inSmall).isLessThanOrEqualTo(3);
+        assertThat(inLarge).isEqualTo(inSmall);
+    }
+
+    @Test
+    void removeProductsDoesNotDependOnNumberOfRemoved() {
+        String small = newCart(10);
+        String large = newCart(10);
+        List<UUID> oneProduct = productsOf(small).subList(0, 1);
+        List<UUID> fiveProducts = productsOf(large).subList(0, 5);
+
+        long removeOne = statementsOf(() -> cartService.removeProductsFromCart(small, oneProduct));
+        long removeFive = statementsOf(() -> cartService.removeProductsFromCart(large, fiveProducts));
+
+        // чтение корзины, пакет удаления позиций, версия корзины
+        assertThat(removeOne).isLessThanOrEqualTo(3);
+        assertThat(removeFive).isEqualTo(removeOne);
+    }
+
+    @Test
+    void deactivateCartDoesNotDependOnCartSize() {
+        String small = newCart(1);
+        String large = newCart(10);
+
+        long deactivateSmall = statementsOf(() -> cartService.deactivateCart(small));
+        long deactivateLarge = statementsOf(() -> cartService.deactivateCart(large));
+
+        assertThat(deactivateSmall).isLessThanOrEqualTo(3);
+        assertThat(deactivateLarge).isEqualTo(deactivateSmall);
+    }
+
+    private long statementsOf(Runnable operation) {
+        statistics.clear();
+        operation.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private String newCart(int items) {
+        String username = "user-" + UUID.randomUUID();
+        cartService.addProductsToCart(username, products(items));
+        return username;
+    }
+
+    private UUID firstProduct(String username) {
+        return productsOf(username).get(0);
+    }
+
+    private List<UUID> productsOf(String username) {
+        List<UUID> productIds = new ArrayList<>();
+        cartService.getShoppingCart(username).getProducts().keySet()
+                .forEach(productId -> productIds.add(UUID.fromString(productId)));
+        return productIds;
+    }
+
+    private static Map<String, Integer> products(int count) {
+        Map<String, Integer> products = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            products.put(UUID.randomUUID().toString(), 1);
+        }
+        return products;
+    }
+}
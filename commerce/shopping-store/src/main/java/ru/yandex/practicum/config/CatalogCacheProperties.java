@@ -0,0 +1,20 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("shopping-store.catalog-cache")
+public class CatalogCacheProperties {
+    private boolean enabled = true;
+    // сколько карточек товаров держать в памяти
+    private int maxProducts = 10000;
+    // сколько страниц категорий держать в памяти
+    private int maxPages = 1000;
+    // страховка на случай изменений каталога в обход сервиса, например напрямую в БД
+    private long ttlSeconds = 300;
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.model.VersionedProduct;
+import ru.yandex.practicum.service.ProductService;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Условный GET карточки товара. ETag берется из кэша каталога до вызова контроллера: если клиент прислал
+ * актуальный If-None-Match, отвечаем 304 без сериализации тела, иначе проставляем ETag и продолжаем.
+ * Версия читается раньше тела, поэтому ETag ответа никогда не новее самой карточки.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductETagInterceptor implements HandlerInterceptor {
+
+    private static final String PRODUCT_ID = "productId";
+
+    private final ProductService productService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || !variables.containsKey(PRODUCT_ID)) {
+            return true;
+        }
+
+        UUID productId;
+        try {
+            productId = UUID.fromString(variables.get(PRODUCT_ID));
+        } catch (IllegalArgumentException e) {
+            // некорректный id отклонит сам контроллер
+            return true;
+        }
+
+        VersionedProduct product = productService.getVersionedProduct(productId);
+        return !new ServletWebRequest(request, response).checkNotModified(product.eTag());
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.client.ShoppingStoreClient;
+import ru.yandex.practicum.dto.common.CursorPageResponse;
 import ru.yandex.practicum.dto.common.PageResponse;
 import ru.yandex.practicum.dto.shoppingstore.ProductDto;
 import ru.yandex.practicum.dto.shoppingstore.SetProductQuantityStateRequest;
@@ -56,6 +57,18 @@ public class ShoppingStoreController implements ShoppingStoreClient {
         );
     }
 
+    @Override
+    @GetMapping("/cursor")
+    public CursorPageResponse<ProductDto> getProductsByCategoryAfter(
+            @RequestParam("category") String category,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal) {
+        return productService.getProductsByCategoryAfter(category, size, sort, direction, cursor, withTotal);
+    }
+
     @Override
     @GetMapping("/{productId}")
     public ProductDto getProduct(@PathVariable("productId") UUID productId) {
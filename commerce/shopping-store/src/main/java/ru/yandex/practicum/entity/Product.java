@@ -7,8 +7,10 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 import ru.yandex.practicum.dto.shoppingstore.ProductCategory;
@@ -20,7 +22,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "products", schema = "shopping_store")
+@Table(name = "products", schema = "shopping_store", indexes = {
+        @Index(name = "idx_products_category_state_name", columnList = "product_category, product_state, product_name, product_id"),
+        @Index(name = "idx_products_category_state_price", columnList = "product_category, product_state, price, product_id"),
+        @Index(name = "idx_products_category_state_created_at", columnList = "product_category, product_state, created_at, product_id")
+})
 @Getter
 @Setter
 public class Product {
@@ -56,6 +62,10 @@ public class Product {
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    // меняется при каждом изменении карточки, из нее строится ETag товара
+    @Version
+    private Long version;
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
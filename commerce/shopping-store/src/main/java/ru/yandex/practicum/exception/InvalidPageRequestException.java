@@ -0,0 +1,11 @@
+package ru.yandex.practicum.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidPageRequestException extends BaseException {
+    public InvalidPageRequestException(String reason) {
+        super(HttpStatus.BAD_REQUEST,
+                "Invalid page request: " + reason,
+                "Invalid page request");
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.model;
+
+import org.springframework.data.domain.Sort;
+import ru.yandex.practicum.exception.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция в листинге категории: значение поля сортировки и productId последнего товара страницы.
+ * Клиенту передается непрозрачной строкой, в которую вместе с позицией записаны поле и направление
+ * сортировки, чтобы курсор нельзя было применить к другому порядку.
+ */
+public record ProductCursor(ProductSortKey sortKey, Sort.Direction direction, Object value, UUID productId) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + value + SEPARATOR + productId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // значение поля может содержать разделитель, поэтому productId отделяется с конца
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first < 0 || second < 0 || last <= second) {
+                throw new InvalidPageRequestException("malformed cursor");
+            }
+
+            ProductSortKey sortKey = ProductSortKey.valueOf(raw.substring(0, first));
+            Sort.Direction direction = Sort.Direction.valueOf(raw.substring(first + 1, second));
+            Object value = sortKey.parse(raw.substring(second + 1, last));
+            UUID productId = UUID.fromString(raw.substring(last + 1));
+            return new ProductCursor(sortKey, direction, value, productId);
+        } catch (InvalidPageRequestException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InvalidPageRequestException("malformed cursor");
+        }
+    }
+}
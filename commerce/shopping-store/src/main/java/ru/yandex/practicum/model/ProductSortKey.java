@@ -0,0 +1,42 @@
+package ru.yandex.practicum.model;
+
+import ru.yandex.practicum.exception.InvalidPageRequestException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * Поля, по которым листинг категории можно листать курсором. Для каждого есть составной индекс
+ * (product_category, product_state, поле, product_id), см. {@link ru.yandex.practicum.entity.Product}.
+ */
+public enum ProductSortKey {
+    PRODUCT_NAME("productName", value -> value),
+    PRICE("price", BigDecimal::new),
+    CREATED_AT("createdAt", LocalDateTime::parse);
+
+    private final String property;
+    private final Function<String, Object> parser;
+
+    ProductSortKey(String property, Function<String, Object> parser) {
+        this.property = property;
+        this.parser = parser;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    public static ProductSortKey fromProperty(String property) {
+        for (ProductSortKey key : values()) {
+            if (key.property.equals(property)) {
+                return key;
+            }
+        }
+        throw new InvalidPageRequestException("unsupported sort property " + property);
+    }
+}
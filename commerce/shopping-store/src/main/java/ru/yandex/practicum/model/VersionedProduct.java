@@ -0,0 +1,13 @@
+package ru.yandex.practicum.model;
+
+import ru.yandex.practicum.dto.shoppingstore.ProductDto;
+
+/**
+ * Карточка товара вместе с версией строки, из которой она построена; версия служит ETag'ом карточки.
+ */
+public record VersionedProduct(ProductDto product, long version) {
+
+    public String eTag() {
+        return "\"" + product.getProductId() + "-" + version + "\"";
+    }
+}
@@ -1,7 +1,12 @@
 package ru.yandex.practicum.repository;
 
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,6 +25,23 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
             Pageable pageable
     );
 
+    /**
+     * Keyset-листинг категории: условие продолжения после позиции строит Spring Data по ключам
+     * {@link KeysetScrollPosition}, поэтому в сортировке последним полем должен идти productId.
+     */
+    Window<Product> findByProductCategoryAndProductState(
+            ru.yandex.practicum.dto.shoppingstore.ProductCategory productCategory,
+            ru.yandex.practicum.dto.shoppingstore.ProductState productState,
+            ScrollPosition position,
+            Sort sort,
+            Limit limit
+    );
+
+    long countByProductCategoryAndProductState(
+            ru.yandex.practicum.dto.shoppingstore.ProductCategory productCategory,
+            ru.yandex.practicum.dto.shoppingstore.ProductState productState
+    );
+
     List<Product> findByProductState(ru.yandex.practicum.dto.shoppingstore.ProductState productState);
 
     @Query("SELECT p FROM Product p WHERE p.productCategory = :category AND p.productState = 'ACTIVE'")
@@ -0,0 +1,215 @@
+package ru.yandex.practicum.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.config.CatalogCacheProperties;
+import ru.yandex.practicum.dto.shoppingstore.ProductCategory;
+import ru.yandex.practicum.dto.shoppingstore.ProductDto;
+import ru.yandex.practicum.model.VersionedProduct;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Сквозной кэш каталога: карточки товаров по id, страницы категорий и число активных товаров
+ * в категории для курсорного листинга. Области ограничены по размеру (вытесняются давно
+ * не читавшиеся записи) и по времени жизни записи.
+ * Изменения каталога сбрасывают только затронутые записи после фиксации транзакции. Чтение,
+ * начатое до сброса, свой результат в кэш не кладет, поэтому устаревшие данные не возвращаются в кэш.
+ */
+@Slf4j
+@Component
+public class ProductCatalogCache {
+
+    private final CatalogCacheProperties properties;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Region<UUID, VersionedProduct> products;
+    private final Region<PageKey, Page<ProductDto>> pages;
+    private final Region<ProductCategory, Long> totals;
+
+    public ProductCatalogCache(CatalogCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        long ttlMillis = properties.getTtlSeconds() * 1000L;
+        this.products = new Region<>(properties.getMaxProducts(), ttlMillis);
+        this.pages = new Region<>(properties.getMaxPages(), ttlMillis);
+        this.totals = new Region<>(ProductCategory.values().length, ttlMillis);
+        bindMetrics(meterRegistry, "products", products);
+        bindMetrics(meterRegistry, "pages", pages);
+        bindMetrics(meterRegistry, "totals", totals);
+    }
+
+    public VersionedProduct getProduct(UUID productId, Supplier<VersionedProduct> loader) {
+        return read(products, productId, loader);
+    }
+
+    public Page<ProductDto> getPage(ProductCategory category, Pageable pageable, Supplier<Page<ProductDto>> loader) {
+        return read(pages, new PageKey(category, pageable), loader);
+    }
+
+    public long getCategoryTotal(ProductCategory category, Supplier<Long> loader) {
+        return read(totals, category, loader);
+    }
+
+    /**
+     * Сбрасывает карточку товара и все страницы указанных категорий после фиксации текущей транзакции.
+     * Для товара, сменившего категорию, нужно передать и старую, и новую категорию.
+     */
+    public void invalidateAfterCommit(UUID productId, Collection<ProductCategory> categories) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(productId, categories);
+            }
+        });
+    }
+
+    public long getProductHitCount() {
+        return products.hits.get();
+    }
+
+    public long getProductMissCount() {
+        return products.misses.get();
+    }
+
+    public double getProductHitRatio() {
+        return products.hitRatio();
+    }
+
+    public long getPageHitCount() {
+        return pages.hits.get();
+    }
+
+    public long getPageMissCount() {
+        return pages.misses.get();
+    }
+
+    public double getPageHitRatio() {
+        return pages.hitRatio();
+    }
+
+    public int getCachedProductCount() {
+        return products.size();
+    }
+
+    public int getCachedPageCount() {
+        return pages.size();
+    }
+
+    private static void bindMetrics(MeterRegistry registry, String name, Region<?, ?> region) {
+        FunctionCounter.builder("catalog.cache.hits", region, r -> r.hits.get())
+                .tag("region", name)
+                .description("Catalog cache reads served from memory")
+                .register(registry);
+        FunctionCounter.builder("catalog.cache.misses", region, r -> r.misses.get())
+                .tag("region", name)
+                .description("Catalog cache reads that went to the database")
+                .register(registry);
+        Gauge.builder("catalog.cache.hit.ratio", region, Region::hitRatio)
+                .tag("region", name)
+                .description("Share of catalog cache reads served from memory")
+                .register(registry);
+        Gauge.builder("catalog.cache.size", region, Region::size)
+                .tag("region", name)
+                .description("Entries currently held in the catalog cache")
+                .register(registry);
+    }
+
+    private void invalidate(UUID productId, Collection<ProductCategory> categories) {
+        invalidations.incrementAndGet();
+        products.remove(productId::equals);
+        pages.remove(key -> categories.contains(key.category()));
+        totals.remove(categories::contains);
+        log.debug("[CatalogCache] Invalidated product {} and categories {}", productId, categories);
+    }
+
+    private <K, V> V read(Region<K, V> region, K key, Supplier<V> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+
+        V cached = region.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = invalidations.get();
+        V loaded = loader.get();
+        region.putIfCurrent(key, loaded, () -> invalidations.get() == version);
+        return loaded;
+    }
+
+    private record PageKey(ProductCategory category, Pageable pageable) {
+    }
+
+    private static final class Region<K, V> {
+
+        private final long ttlMillis;
+        private final Map<K, Entry<V>> entries;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        private Region(int maxSize, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private synchronized V get(K key) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        private synchronized void putIfCurrent(K key, V value, BooleanSupplier current) {
+            // версия проверяется под той же блокировкой, под которой удаляются записи,
+            // иначе значение, загруженное до сброса, могло бы попасть в кэш уже после него
+            if (value != null && current.getAsBoolean()) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        private synchronized void remove(Predicate<K> predicate) {
+            entries.keySet().removeIf(predicate);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private double hitRatio() {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
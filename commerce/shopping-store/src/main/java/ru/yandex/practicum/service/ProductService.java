@@ -2,49 +2,137 @@ package ru.yandex.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.dto.common.CursorPageResponse;
+import ru.yandex.practicum.dto.common.PageResponse;
+import ru.yandex.practicum.dto.shoppingstore.ProductCategory;
 import ru.yandex.practicum.dto.shoppingstore.ProductDto;
 import ru.yandex.practicum.dto.shoppingstore.SetProductQuantityStateRequest;
 import ru.yandex.practicum.entity.Product;
+import ru.yandex.practicum.exception.InvalidPageRequestException;
 import ru.yandex.practicum.exception.ProductNotFoundException;
 import ru.yandex.practicum.mapper.ProductMapper;
+import ru.yandex.practicum.model.ProductCursor;
+import ru.yandex.practicum.model.ProductSortKey;
+import ru.yandex.practicum.model.VersionedProduct;
 import ru.yandex.practicum.repository.ProductRepository;
 
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class ProductService {
 
+    private static final String PRODUCT_ID = "productId";
+    // курсорный листинг нужен, чтобы не тянуть категорию целиком, поэтому размер страницы ограничен
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCatalogCache catalogCache;
 
-
+    // чтения идут без транзакции уровня сервиса: попадание в кэш не должно занимать соединение с БД
     public Page<ProductDto> getProductsByCategory(String category, Pageable pageable) {
         log.info("Getting products by category: {}, pageable: {}", category, pageable);
 
         var productCategory = ru.yandex.practicum.dto.shoppingstore.ProductCategory.valueOf(category);
-        Page<Product> products = productRepository.findByProductCategoryAndProductState(
+        return catalogCache.getPage(productCategory, pageable, () -> productRepository
+                .findByProductCategoryAndProductState(
+                        productCategory,
+                        ru.yandex.practicum.dto.shoppingstore.ProductState.ACTIVE,
+                        pageable)
+                .map(productMapper::toDto));
+    }
+
+    /**
+     * Курсорный листинг категории. Курсор хранит поле и направление сортировки, поэтому при его наличии
+     * параметры сортировки запроса не используются. Общее число товаров считается только по запросу
+     * и берется из кэша каталога.
+     */
+    public CursorPageResponse<ProductDto> getProductsByCategoryAfter(String category, int size, String sort,
+                                                                     String direction, String cursor,
+                                                                     boolean withTotal) {
+        log.info("Getting products by category: {}, size: {}, cursor: {}", category, size, cursor);
+
+        if (size < 1) {
+            throw new InvalidPageRequestException("page size must be positive");
+        }
+        if (size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("page size must not exceed " + MAX_PAGE_SIZE);
+        }
+        var productCategory = ProductCategory.valueOf(category);
+
+        ProductSortKey sortKey;
+        Sort.Direction sortDirection;
+        ScrollPosition position;
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor decoded = ProductCursor.decode(cursor);
+            sortKey = decoded.sortKey();
+            sortDirection = decoded.direction();
+            position = ScrollPosition.forward(Map.of(
+                    sortKey.getProperty(), decoded.value(),
+                    PRODUCT_ID, decoded.productId()));
+        } else {
+            sortKey = sort != null ? ProductSortKey.fromProperty(sort) : ProductSortKey.PRODUCT_NAME;
+            sortDirection = direction != null
+                    ? Sort.Direction.fromOptionalString(direction)
+                    .orElseThrow(() -> new InvalidPageRequestException("unsupported sort direction " + direction))
+                    : Sort.Direction.ASC;
+            position = ScrollPosition.keyset();
+        }
+
+        Window<Product> window = productRepository.findByProductCategoryAndProductState(
                 productCategory,
                 ru.yandex.practicum.dto.shoppingstore.ProductState.ACTIVE,
-                pageable
-        );
+                position,
+                Sort.by(sortDirection, sortKey.getProperty(), PRODUCT_ID),
+                Limit.of(size));
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            var keys = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+            nextCursor = new ProductCursor(sortKey, sortDirection,
+                    keys.get(sortKey.getProperty()), (UUID) keys.get(PRODUCT_ID)).encode();
+        }
 
-        return products.map(productMapper::toDto);
+        Long total = withTotal
+                ? catalogCache.getCategoryTotal(productCategory, () -> productRepository.countByProductCategoryAndProductState(
+                        productCategory, ru.yandex.practicum.dto.shoppingstore.ProductState.ACTIVE))
+                : null;
+
+        return new CursorPageResponse<>(
+                window.getContent().stream().map(productMapper::toDto).toList(),
+                size,
+                nextCursor,
+                nextCursor == null,
+                total,
+                List.of(new PageResponse.SortInfo(sortKey.getProperty(), sortDirection.name()))
+        );
     }
 
     public ProductDto getProduct(UUID productId) {
         log.info("Getting product by id: {}", productId);
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException(productId));
+        return getVersionedProduct(productId).product();
+    }
 
-        return productMapper.toDto(product);
+    public VersionedProduct getVersionedProduct(UUID productId) {
+        return catalogCache.getProduct(productId, () -> productRepository.findById(productId)
+                .map(product -> new VersionedProduct(productMapper.toDto(product), product.getVersion()))
+                .orElseThrow(() -> new ProductNotFoundException(productId)));
     }
 
     @Transactional
@@ -57,6 +145,7 @@ public class ProductService {
         }
 
         Product savedProduct = productRepository.save(product);
+        catalogCache.invalidateAfterCommit(savedProduct.getProductId(), categoriesOf(savedProduct.getProductCategory()));
         return productMapper.toDto(savedProduct);
     }
 
@@ -66,9 +155,12 @@ public class ProductService {
 
         Product existingProduct = productRepository.findById(productDto.getProductId())
                 .orElseThrow(() -> new ProductNotFoundException(productDto.getProductId()));
+        var previousCategory = existingProduct.getProductCategory();
 
         productMapper.updateEntityFromDto(productDto, existingProduct);
         Product updatedProduct = productRepository.save(existingProduct);
+        catalogCache.invalidateAfterCommit(updatedProduct.getProductId(),
+                categoriesOf(previousCategory, updatedProduct.getProductCategory()));
 
         return productMapper.toDto(updatedProduct);
     }
@@ -82,6 +174,7 @@ public class ProductService {
 
         product.setProductState(ru.yandex.practicum.dto.shoppingstore.ProductState.DEACTIVATE);
         productRepository.save(product);
+        catalogCache.invalidateAfterCommit(productId, categoriesOf(product.getProductCategory()));
 
         return true;
     }
@@ -95,7 +188,18 @@ public class ProductService {
 
         product.setQuantityState(request.getQuantityState());
         productRepository.save(product);
+        catalogCache.invalidateAfterCommit(product.getProductId(), categoriesOf(product.getProductCategory()));
 
         return true;
     }
+
+    private static Set<ProductCategory> categoriesOf(ProductCategory... categories) {
+        Set<ProductCategory> result = EnumSet.noneOf(ProductCategory.class);
+        for (ProductCategory category : categories) {
+            if (category != null) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
 }
\ No newline at end of file
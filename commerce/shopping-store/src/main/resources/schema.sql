@@ -1 +1,24 @@
-CREATE SCHEMA IF NOT EXISTS shopping_store;
\ No newline at end of file
+CREATE SCHEMA IF NOT EXISTS shopping_store;
+
+-- таблицу создает Hibernate (см. Product), здесь она описана для окружений без ddl-auto
+CREATE TABLE IF NOT EXISTS shopping_store.products (
+    product_id UUID PRIMARY KEY,
+    product_name VARCHAR(255) NOT NULL,
+    description VARCHAR(1000) NOT NULL,
+    image_src VARCHAR(255),
+    quantity_state VARCHAR(255) NOT NULL,
+    product_state VARCHAR(255) NOT NULL,
+    product_category VARCHAR(255),
+    price NUMERIC(10, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- индексы для keyset-листинга категорий: на каждое поле сортировки, productId замыкает порядок
+CREATE INDEX IF NOT EXISTS idx_products_category_state_name
+    ON shopping_store.products(product_category, product_state, product_name, product_id);
+CREATE INDEX IF NOT EXISTS idx_products_category_state_price
+    ON shopping_store.products(product_category, product_state, price, product_id);
+CREATE INDEX IF NOT EXISTS idx_products_category_state_created_at
+    ON shopping_store.products(product_category, product_state, created_at, product_id);
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("warehouse.inventory-cache")
+public class InventoryCacheProperties {
+    // счетчики в памяти корректны, только если все изменения остатков идут через один экземпляр склада
+    private boolean enabled = false;
+    // как часто накопленные резервы списываются с warehouse_items
+    private long flushIntervalMs = 500;
+}
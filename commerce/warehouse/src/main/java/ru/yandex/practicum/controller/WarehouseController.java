@@ -18,6 +18,8 @@ import ru.yandex.practicum.dto.warehouse.BookedProductsDto;
 import ru.yandex.practicum.dto.warehouse.NewProductInWarehouseRequest;
 import ru.yandex.practicum.service.WarehouseService;
 
+import java.util.UUID;
+
 @Slf4j
 @RestController
 @RequiredArgsConstructor
@@ -40,6 +42,27 @@ public class WarehouseController {
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/reserve")
+    public ResponseEntity<BookedProductsDto> reserveProducts(@RequestBody ShoppingCartDto shoppingCart) {
+        log.info("Reserving products for shopping cart: {}", shoppingCart.getShoppingCartId());
+        BookedProductsDto result = warehouseService.reserveProducts(shoppingCart);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/reserve/release")
+    public ResponseEntity<Void> releaseReservation(@RequestBody UUID shoppingCartId) {
+        log.info("Releasing reservation for shopping cart: {}", shoppingCartId);
+        warehouseService.releaseReservation(shoppingCartId);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/reserve/commit")
+    public ResponseEntity<Void> commitReservation(@RequestBody UUID shoppingCartId) {
+        log.info("Committing reservation for shopping cart: {}", shoppingCartId);
+        warehouseService.commitReservation(shoppingCartId);
+        return ResponseEntity.ok().build();
+    }
+
     @PostMapping("/add")
     public ResponseEntity<Void> addProductToWarehouse(@RequestBody AddProductToWarehouseRequest request) {
         log.info("Adding quantity to existing product: {}, quantity: {}", request.getProductId(), request.getQuantity());
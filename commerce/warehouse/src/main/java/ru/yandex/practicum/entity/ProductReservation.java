@@ -0,0 +1,49 @@
+package ru.yandex.practicum.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Товар, зарезервированный под корзину. Остаток на складе уменьшается в момент резервирования,
+ * поэтому отмена резерва возвращает количество на склад, а подтверждение только удаляет запись.
+ * При включенном кэше остатков списание откладывается: запись создается со {@code stockApplied = false}
+ * и служит журналом, по которому остаток в warehouse_items догоняется пакетно и после рестарта.
+ */
+@Entity
+@Table(name = "product_reservations", schema = "warehouse",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"shopping_cart_id", "product_id"}),
+        indexes = @Index(name = "idx_product_reservations_cart", columnList = "shopping_cart_id"))
+@Getter
+@Setter
+public class ProductReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "shopping_cart_id", nullable = false)
+    private UUID shoppingCartId;
+
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private Boolean stockApplied = true;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Все позиции резерва, остатка которых не хватает. Отсутствующий на складе товар - WarehouseItemNotFoundException.
+ */
+@Getter
+public class ProductShortageException extends BaseException {
+    private final Map<UUID, String> shortages;
+
+    public ProductShortageException(Map<UUID, String> shortages) {
+        super(HttpStatus.BAD_REQUEST,
+                "Insufficient stock for products: " + shortages.entrySet().stream()
+                        .map(entry -> entry.getKey() + " (" + entry.getValue() + ")")
+                        .collect(Collectors.joining(", ")),
+                "Insufficient quantity available");
+        this.shortages = Map.copyOf(shortages);
+    }
+}
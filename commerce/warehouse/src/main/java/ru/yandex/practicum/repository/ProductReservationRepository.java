@@ -0,0 +1,52 @@
+package ru.yandex.practicum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.entity.ProductReservation;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ProductReservationRepository extends JpaRepository<ProductReservation, UUID> {
+
+    List<ProductReservation> findByShoppingCartId(UUID shoppingCartId);
+
+    @Modifying
+    @Query("DELETE FROM ProductReservation pr WHERE pr.shoppingCartId = :shoppingCartId")
+    int deleteByShoppingCartId(@Param("shoppingCartId") UUID shoppingCartId);
+
+    // удаляет резерв корзины и возвращает только удаленные этим вызовом строки: [product_id, quantity];
+    // параллельный вызов для той же корзины ждет блокировки строк и уже не видит их
+    @Transactional
+    @Query(value = "WITH removed AS (" +
+            "    DELETE FROM warehouse.product_reservations WHERE shopping_cart_id = :shoppingCartId " +
+            "    RETURNING product_id, quantity) " +
+            "SELECT product_id, quantity FROM removed", nativeQuery = true)
+    List<Object[]> deleteReturningByShoppingCartId(@Param("shoppingCartId") UUID shoppingCartId);
+
+    // отложенные резервы помечаются списанными и вычитаются из остатков одним оператором,
+    // поэтому резерв, созданный параллельно, не может быть помечен без списания
+    @Transactional
+    @Modifying
+    @Query(value = "WITH applied AS (" +
+            "    UPDATE warehouse.product_reservations SET stock_applied = true " +
+            "    WHERE NOT stock_applied RETURNING product_id, quantity) " +
+            "UPDATE warehouse.warehouse_items w SET quantity = w.quantity - t.total, updated_at = now() " +
+            "FROM (SELECT product_id, SUM(quantity) AS total FROM applied GROUP BY product_id) t " +
+            "WHERE w.product_id = t.product_id", nativeQuery = true)
+    int applyPendingReservations();
+
+    @Modifying
+    @Query(value = "WITH applied AS (" +
+            "    UPDATE warehouse.product_reservations SET stock_applied = true " +
+            "    WHERE NOT stock_applied AND shopping_cart_id = :shoppingCartId RETURNING product_id, quantity) " +
+            "UPDATE warehouse.warehouse_items w SET quantity = w.quantity - t.total, updated_at = now() " +
+            "FROM (SELECT product_id, SUM(quantity) AS total FROM applied GROUP BY product_id) t " +
+            "WHERE w.product_id = t.product_id", nativeQuery = true)
+    int applyPendingReservations(@Param("shoppingCartId") UUID shoppingCartId);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.entity.WarehouseItem;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,7 +24,20 @@ public interface WarehouseItemRepository extends JpaRepository<WarehouseItem, UU
 
     boolean existsByProductId(UUID productId);
 
+    // товары вместе с остатком за вычетом еще не списанных резервов: [WarehouseItem, Number]
+    @Query("SELECT wi, wi.quantity - COALESCE((SELECT SUM(r.quantity) FROM ProductReservation r " +
+            "WHERE r.productId = wi.productId AND r.stockApplied = false), 0) " +
+            "FROM WarehouseItem wi WHERE wi.productId IN :productIds")
+    List<Object[]> findWithAvailableQuantity(@Param("productIds") Collection<UUID> productIds);
+
+    @Modifying
+    @Query("UPDATE WarehouseItem wi SET wi.quantity = wi.quantity + :quantity, wi.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE wi.productId = :productId")
+    int updateQuantity(@Param("productId") UUID productId, @Param("quantity") Integer quantity);
+
+    // списание одним условным UPDATE: 0 обновленных строк означает, что товара нет или остатка не хватает
     @Modifying
-    @Query("UPDATE WarehouseItem wi SET wi.quantity = wi.quantity + :quantity WHERE wi.productId = :productId")
-    void updateQuantity(@Param("productId") UUID productId, @Param("quantity") Integer quantity);
+    @Query("UPDATE WarehouseItem wi SET wi.quantity = wi.quantity - :quantity, wi.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE wi.productId = :productId AND wi.quantity >= :quantity")
+    int decreaseQuantityIfAvailable(@Param("productId") UUID productId, @Param("quantity") Integer quantity);
 }
\ No newline at end of file
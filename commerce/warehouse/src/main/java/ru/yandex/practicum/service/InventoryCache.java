@@ -0,0 +1,319 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.entity.WarehouseItem;
+import ru.yandex.practicum.repository.ProductReservationRepository;
+import ru.yandex.practicum.repository.WarehouseItemRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Остатки товаров в памяти для горячих SKU. Проверка наличия отвечает из памяти, резерв уменьшает
+ * счетчик товара CAS-операцией и пишет только строку резерва, а списание с warehouse_items
+ * выполняется пакетно по журналу резервов (см. {@link ProductReservationRepository#applyPendingReservations()}).
+ * Тот же оператор при старте сервиса догоняет остатки после аварийной остановки (см. {@link WarehouseService#init()}).
+ * <p>
+ * Зачисления (поступление товара, отмена резерва) попадают в счетчики после фиксации транзакции.
+ * Чтобы загрузка товара в память не потеряла и не учла дважды зачисление, зафиксированное во время
+ * чтения остатка, зачисление отмечается перед фиксацией и снимается после нее: товар публикуется
+ * в памяти, только если за время чтения по нему не было ни одного зачисления, иначе остаток перечитывается.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "warehouse.inventory-cache.enabled", havingValue = "true")
+public class InventoryCache {
+
+    private static final int MAX_LOAD_ATTEMPTS = 50;
+
+    private final WarehouseItemRepository warehouseItemRepository;
+    private final ProductReservationRepository productReservationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, CachedItem> items = new ConcurrentHashMap<>();
+    // зачисления по товарам, еще не загруженным в память; все поля ниже защищены монитором creditsInFlight
+    private final Map<UUID, Integer> creditsInFlight = new HashMap<>();
+    private final Map<UUID, Long> lastCreditEpoch = new HashMap<>();
+    private long creditEpoch;
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushedProductCount = new AtomicLong();
+
+    public InventoryCache(WarehouseItemRepository warehouseItemRepository,
+                          ProductReservationRepository productReservationRepository,
+                          TransactionTemplate transactionTemplate) {
+        this.warehouseItemRepository = warehouseItemRepository;
+        this.productReservationRepository = productReservationRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "#{@inventoryCacheProperties.flushIntervalMs}")
+    public void flush() {
+        try {
+            Integer applied = transactionTemplate.execute(status -> productReservationRepository.applyPendingReservations());
+            if (applied != null && applied > 0) {
+                flushCount.incrementAndGet();
+                flushedProductCount.addAndGet(applied);
+                log.debug("[InventoryCache] Flushed pending reservations for {} products", applied);
+            }
+        } catch (Exception e) {
+            // журнал резервов не изменился, списание повторится на следующем сбросе
+            log.error("[InventoryCache] Failed to flush pending reservations", e);
+        }
+    }
+
+    /**
+     * Товары с текущим остатком из памяти. Возвращаются отсоединенные копии, отсутствующие на складе
+     * товары в результат не попадают.
+     */
+    public Map<UUID, WarehouseItem> getItems(Collection<UUID> productIds) {
+        Map<UUID, WarehouseItem> result = new HashMap<>();
+        load(productIds).forEach((productId, cached) -> result.put(productId, cached.copyWithQuantity()));
+        return result;
+    }
+
+    /**
+     * Загружает товары в память. Вызывается в начале транзакции, до ее собственных изменений остатков:
+     * загрузка внутри транзакции прочитала бы их незафиксированными.
+     */
+    public void preload(Collection<UUID> productIds) {
+        load(productIds);
+    }
+
+    /**
+     * Уменьшает счетчики всех товаров либо ни одного. Возвращает товары, которых не хватило.
+     * {@code alreadyHeld} - предыдущий резерв той же корзины, который заменяется в текущей транзакции:
+     * из счетчика берется только превышение нового количества над ним, а остаток старого резерва
+     * возвращается в счетчик после фиксации. Если транзакция откатится, списанное возвращается в счетчики,
+     * а старый резерв остается в силе.
+     */
+    public List<UUID> tryReserve(Map<UUID, Integer> requested, Map<UUID, Integer> alreadyHeld) {
+        Map<UUID, Integer> taken = new HashMap<>();
+        List<UUID> failed = new ArrayList<>();
+        Map<UUID, CachedItem> loaded = load(requested.keySet());
+        for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+            CachedItem cached = loaded.get(entry.getKey());
+            int needed = entry.getValue() - alreadyHeld.getOrDefault(entry.getKey(), 0);
+            if (cached == null) {
+                failed.add(entry.getKey());
+            } else if (needed > 0) {
+                if (cached.tryTake(needed)) {
+                    taken.put(entry.getKey(), needed);
+                } else {
+                    failed.add(entry.getKey());
+                }
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            giveBack(taken);
+            return failed;
+        }
+
+        Map<UUID, Integer> released = new HashMap<>();
+        alreadyHeld.forEach((productId, held) -> {
+            int surplus = held - requested.getOrDefault(productId, 0);
+            if (surplus > 0) {
+                released.put(productId, surplus);
+            }
+        });
+
+        TransactionSynchronizationManager.registerSynchronization(new CreditSynchronization(released, taken));
+        return failed;
+    }
+
+    /**
+     * Возвращает количество в счетчики после фиксации текущей транзакции: отмена резерва и поступление товара.
+     */
+    public void addAfterCommit(Map<UUID, Integer> quantities) {
+        TransactionSynchronizationManager.registerSynchronization(new CreditSynchronization(quantities, Map.of()));
+    }
+
+    public int getCachedProductCount() {
+        return items.size();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushedProductCount() {
+        return flushedProductCount.get();
+    }
+
+    // возврат взятого из счетчиков при откате: товары уже в памяти
+    private void giveBack(Map<UUID, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            CachedItem cached = items.get(productId);
+            if (cached != null) {
+                cached.available.addAndGet(quantity);
+            }
+        });
+    }
+
+    private void beginCredit(Collection<UUID> productIds) {
+        synchronized (creditsInFlight) {
+            for (UUID productId : productIds) {
+                creditsInFlight.merge(productId, 1, Integer::sum);
+            }
+        }
+    }
+
+    private void endCredit(Map<UUID, Integer> quantities, boolean committed) {
+        synchronized (creditsInFlight) {
+            creditEpoch++;
+            quantities.forEach((productId, quantity) -> {
+                creditsInFlight.computeIfPresent(productId, (id, count) -> count > 1 ? count - 1 : null);
+                CachedItem cached = items.get(productId);
+                if (cached == null) {
+                    // загрузка, читавшая остаток одновременно с зачислением, перечитает его
+                    lastCreditEpoch.put(productId, creditEpoch);
+                } else if (committed) {
+                    cached.available.addAndGet(quantity);
+                }
+            });
+        }
+    }
+
+    /**
+     * Товары из памяти; отсутствующие в памяти загружаются одним запросом вместе с остатком.
+     */
+    private Map<UUID, CachedItem> load(Collection<UUID> productIds) {
+        Map<UUID, CachedItem> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID productId : productIds) {
+            CachedItem cached = items.get(productId);
+            if (cached != null) {
+                result.put(productId, cached);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        for (int attempt = 1; !missing.isEmpty(); attempt++) {
+            if (attempt > MAX_LOAD_ATTEMPTS) {
+                throw new IllegalStateException("Stock of products " + missing + " keeps changing, cannot cache it");
+            }
+            if (attempt > 1) {
+                // зачисление занимает время фиксации транзакции
+                LockSupport.parkNanos(1_000_000);
+            }
+            long epoch;
+            synchronized (creditsInFlight) {
+                epoch = creditEpoch;
+            }
+
+            // отсутствие товара не кэшируется: он может появиться на складе позже
+            List<Object[]> rows = warehouseItemRepository.findWithAvailableQuantity(missing);
+            List<UUID> changed = new ArrayList<>();
+            synchronized (creditsInFlight) {
+                for (Object[] row : rows) {
+                    WarehouseItem item = (WarehouseItem) row[0];
+                    UUID productId = item.getProductId();
+                    CachedItem existing = items.get(productId);
+                    if (existing != null) {
+                        result.put(productId, existing);
+                    } else if (creditsInFlight.containsKey(productId)
+                            || lastCreditEpoch.getOrDefault(productId, 0L) > epoch) {
+                        changed.add(productId);
+                    } else {
+                        CachedItem loaded = new CachedItem(item, ((Number) row[1]).intValue());
+                        items.put(productId, loaded);
+                        lastCreditEpoch.remove(productId);
+                        result.put(productId, loaded);
+                    }
+                }
+            }
+            missing = changed;
+        }
+        return result;
+    }
+
+    /**
+     * Зачисление в счетчики после фиксации; при откате в счетчики возвращается взятое транзакцией.
+     */
+    private final class CreditSynchronization implements TransactionSynchronization {
+        private final Map<UUID, Integer> credited;
+        private final Map<UUID, Integer> takenOnRollback;
+        private boolean started;
+
+        private CreditSynchronization(Map<UUID, Integer> credited, Map<UUID, Integer> takenOnRollback) {
+            this.credited = credited;
+            this.takenOnRollback = takenOnRollback;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            beginCredit(credited.keySet());
+            started = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            boolean committed = status == STATUS_COMMITTED;
+            if (started) {
+                endCredit(credited, committed);
+            }
+            if (!committed) {
+                giveBack(takenOnRollback);
+            }
+        }
+    }
+
+    private static final class CachedItem {
+        private final WarehouseItem item;
+        private final AtomicInteger available;
+
+        private CachedItem(WarehouseItem item, int available) {
+            this.item = copyOf(item);
+            this.available = new AtomicInteger(available);
+        }
+
+        private boolean tryTake(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private WarehouseItem copyWithQuantity() {
+            WarehouseItem copy = copyOf(item);
+            copy.setQuantity(available.get());
+            return copy;
+        }
+
+        private static WarehouseItem copyOf(WarehouseItem item) {
+            WarehouseItem copy = new WarehouseItem();
+            copy.setId(item.getId());
+            copy.setProductId(item.getProductId());
+            copy.setQuantity(item.getQuantity());
+            copy.setWidth(item.getWidth());
+            copy.setHeight(item.getHeight());
+            copy.setDepth(item.getDepth());
+            copy.setWeight(item.getWeight());
+            copy.setFragile(item.getFragile());
+            return copy;
+        }
+    }
+}
@@ -9,16 +9,27 @@ import ru.yandex.practicum.dto.warehouse.AddProductToWarehouseRequest;
 import ru.yandex.practicum.dto.warehouse.AddressDto;
 import ru.yandex.practicum.dto.warehouse.BookedProductsDto;
 import ru.yandex.practicum.dto.warehouse.NewProductInWarehouseRequest;
+import ru.yandex.practicum.entity.ProductReservation;
 import ru.yandex.practicum.entity.WarehouseAddress;
 import ru.yandex.practicum.entity.WarehouseItem;
+import ru.yandex.practicum.exception.ProductShortageException;
 import ru.yandex.practicum.exception.WarehouseItemNotFoundException;
 import ru.yandex.practicum.mapper.WarehouseMapper;
+import ru.yandex.practicum.repository.ProductReservationRepository;
 import ru.yandex.practicum.repository.WarehouseAddressRepository;
 import ru.yandex.practicum.repository.WarehouseItemRepository;
 
 import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -28,6 +39,8 @@ public class WarehouseService {
 
     private final WarehouseItemRepository warehouseItemRepository;
     private final WarehouseAddressRepository warehouseAddressRepository;
+    private final ProductReservationRepository productReservationRepository;
+    private final Optional<InventoryCache> inventoryCache;
     private final WarehouseMapper warehouseMapper;
 
     private WarehouseAddress warehouseAddress; // Кэшируем адрес при инициализации
@@ -35,6 +48,15 @@ public class WarehouseService {
     @PostConstruct
     public void init() {
         initializeWarehouseAddress();
+        reconcilePendingReservations();
+    }
+
+    private void reconcilePendingReservations() {
+        // резервы, принятые кэшем остатков, но не списанные до остановки сервиса
+        int applied = productReservationRepository.applyPendingReservations();
+        if (applied > 0) {
+            log.warn("[WarehouseService] Applied pending reservations on startup for {} products", applied);
+        }
     }
 
     private void initializeWarehouseAddress() {
@@ -116,66 +138,26 @@ public class WarehouseService {
 
         long startTime = System.currentTimeMillis();
         try {
-            Double totalVolume = 0.0;
-            Double totalWeight = 0.0;
-            Boolean hasFragile = false;
-            int checkedProducts = 0;
-
-            for (Map.Entry<String, Integer> entry : shoppingCart.getProducts().entrySet()) {
-                UUID productId;
-                try {
-                    productId = UUID.fromString(entry.getKey());
-                    log.debug("[WarehouseService] Checking product: {}, quantity: {}",
-                            productId, entry.getValue());
-                } catch (IllegalArgumentException e) {
-                    log.warn("[WarehouseService] Invalid product ID format: {}, skipping", entry.getKey());
-                    continue;
-                }
-
-                Integer requestedQuantity = entry.getValue();
-                checkedProducts++;
-
-                WarehouseItem item = warehouseItemRepository.findByProductId(productId)
-                        .orElseThrow(() -> {
-                            log.error("[WarehouseService] Product not found in warehouse: {}", productId);
-                            return new WarehouseItemNotFoundException(productId);
-                        });
-
-                if (item.getQuantity() < requestedQuantity) {
-                    log.error("[WarehouseService] Insufficient stock for product: {}. Available: {}, Requested: {}",
-                            productId, item.getQuantity(), requestedQuantity);
-                    throw new IllegalArgumentException("Insufficient stock for product: " + productId +
-                            " (available: " + item.getQuantity() +
-                            ", requested: " + requestedQuantity + ")");
-                }
-
-                log.debug("[WarehouseService] Product {} available. Stock: {}",
-                        productId, item.getQuantity());
-
-                if (item.getWidth() != null && item.getHeight() != null && item.getDepth() != null) {
-                    Double volume = item.getWidth().doubleValue() * item.getHeight().doubleValue() * item.getDepth().doubleValue();
-                    totalVolume += volume * requestedQuantity;
-                    log.debug("[WarehouseService] Product volume: {} m³", volume);
-                }
-
-                if (item.getWeight() != null) {
-                    totalWeight += item.getWeight().doubleValue() * requestedQuantity;
-                    log.debug("[WarehouseService] Product weight: {} kg", item.getWeight());
-                }
-
-                if (item.getFragile() != null && item.getFragile()) {
-                    hasFragile = true;
-                    log.debug("[WarehouseService] Product marked as fragile");
-                }
+            Map<UUID, Integer> requested = parseProducts(shoppingCart);
+
+            // все позиции корзины загружаются одним запросом
+            Map<UUID, WarehouseItem> items = loadItems(requested.keySet());
+            log.debug("[WarehouseService] Loaded {} of {} requested products", items.size(), requested.size());
+
+            // отсутствующий товар - 404, как и до пакетной проверки; нехватка остатка - 400 по всем позициям
+            requireAllFound(requested.keySet(), items);
+            Map<UUID, String> shortages = findShortages(requested, items);
+            if (!shortages.isEmpty()) {
+                log.warn("[WarehouseService] {} of {} products cannot be provided for cart: {}",
+                        shortages.size(), requested.size(), shoppingCart.getShoppingCartId());
+                throw new ProductShortageException(shortages);
             }
 
-            BookedProductsDto result = new BookedProductsDto(totalVolume, totalWeight, hasFragile);
+            BookedProductsDto result = calculateBooking(requested, items);
 
             long duration = System.currentTimeMillis() - startTime;
             log.info("[WarehouseService] Availability check completed. Products checked: {}, Time: {} ms",
-                    checkedProducts, duration);
-            log.debug("[WarehouseService] Booking details - Volume: {} m³, Weight: {} kg, Fragile: {}",
-                    totalVolume, totalWeight, hasFragile);
+                    requested.size(), duration);
 
             return result;
         } catch (Exception e) {
@@ -185,6 +167,175 @@ public class WarehouseService {
         }
     }
 
+    /**
+     * Резервирует товары корзины: остаток каждого товара уменьшается условным UPDATE, поэтому
+     * параллельные резервы не могут увести остаток в минус. Повторный резерв той же корзины
+     * заменяет предыдущий. Если хотя бы одной позиции не хватает, транзакция откатывается целиком.
+     */
+    @Transactional
+    public BookedProductsDto reserveProducts(ShoppingCartDto shoppingCart) {
+        UUID shoppingCartId = shoppingCart.getShoppingCartId();
+        log.info("[WarehouseService] Reserving products for shopping cart: {}", shoppingCartId);
+
+        long startTime = System.currentTimeMillis();
+        // фиксированный порядок обновления строк исключает взаимные блокировки между корзинами
+        Map<UUID, Integer> requested = new TreeMap<>(parseProducts(shoppingCart));
+        // счетчики загружаются до возврата прежнего резерва, иначе он был бы прочитан незафиксированным
+        inventoryCache.ifPresent(cache -> cache.preload(requested.keySet()));
+        Map<UUID, Integer> previous = returnReservedToStock(shoppingCartId);
+
+        List<UUID> failed;
+        if (inventoryCache.isPresent()) {
+            // остаток уменьшается в памяти, списание с warehouse_items выполнит пакетный сброс по журналу резервов;
+            // прежний резерв корзины засчитывается сразу, иначе повторный резерв тех же единиц упрется в нехватку
+            failed = inventoryCache.get().tryReserve(requested, previous);
+        } else {
+            failed = new ArrayList<>();
+            for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+                if (warehouseItemRepository.decreaseQuantityIfAvailable(entry.getKey(), entry.getValue()) == 0) {
+                    failed.add(entry.getKey());
+                }
+            }
+        }
+
+        Map<UUID, WarehouseItem> items = loadItems(requested.keySet());
+        if (!failed.isEmpty()) {
+            requireAllFound(failed, items);
+            Map<UUID, String> shortages = new LinkedHashMap<>();
+            for (UUID productId : failed) {
+                shortages.put(productId,
+                        "available: " + items.get(productId).getQuantity() + ", requested: " + requested.get(productId));
+            }
+            log.warn("[WarehouseService] {} of {} products cannot be reserved for cart: {}",
+                    shortages.size(), requested.size(), shoppingCartId);
+            throw new ProductShortageException(shortages);
+        }
+
+        List<ProductReservation> reservations = new ArrayList<>(requested.size());
+        for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+            ProductReservation reservation = new ProductReservation();
+            reservation.setShoppingCartId(shoppingCartId);
+            reservation.setProductId(entry.getKey());
+            reservation.setQuantity(entry.getValue());
+            reservation.setStockApplied(inventoryCache.isEmpty());
+            reservations.add(reservation);
+        }
+        productReservationRepository.saveAll(reservations);
+
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("[WarehouseService] Reserved {} products for cart: {} in {} ms",
+                requested.size(), shoppingCartId, duration);
+        return calculateBooking(requested, items);
+    }
+
+    @Transactional
+    public void releaseReservation(UUID shoppingCartId) {
+        log.info("[WarehouseService] Releasing reservation for shopping cart: {}", shoppingCartId);
+        Map<UUID, Integer> released = returnReservedToStock(shoppingCartId);
+        inventoryCache.ifPresent(cache -> cache.addAfterCommit(released));
+        log.info("[WarehouseService] Released {} reserved products for cart: {}", released.size(), shoppingCartId);
+    }
+
+    /**
+     * Подтверждает резерв: товары уже списаны со склада, поэтому удаляются только записи резерва.
+     */
+    @Transactional
+    public void commitReservation(UUID shoppingCartId) {
+        log.info("[WarehouseService] Committing reservation for shopping cart: {}", shoppingCartId);
+        productReservationRepository.applyPendingReservations(shoppingCartId);
+        int committed = productReservationRepository.deleteByShoppingCartId(shoppingCartId);
+        log.info("[WarehouseService] Committed {} reserved products for cart: {}", committed, shoppingCartId);
+    }
+
+    /**
+     * Возвращает резерв корзины на склад в warehouse_items и удаляет его записи. Возвращается только
+     * то, что удалил этот вызов, поэтому параллельные освобождения одной корзины не зачисляют остаток дважды.
+     * Счетчики кэша остатков не меняются, это делает вызывающий код.
+     *
+     * @return возвращенное количество по товарам
+     */
+    private Map<UUID, Integer> returnReservedToStock(UUID shoppingCartId) {
+        // сначала списываем отложенные резервы корзины, чтобы возврат не увеличил остаток сверх фактического
+        productReservationRepository.applyPendingReservations(shoppingCartId);
+        Map<UUID, Integer> removed = new TreeMap<>();
+        for (Object[] row : productReservationRepository.deleteReturningByShoppingCartId(shoppingCartId)) {
+            removed.merge((UUID) row[0], ((Number) row[1]).intValue(), Integer::sum);
+        }
+        // фиксированный порядок обновления строк, как и при резерве
+        for (Map.Entry<UUID, Integer> entry : removed.entrySet()) {
+            warehouseItemRepository.updateQuantity(entry.getKey(), entry.getValue());
+        }
+        return removed;
+    }
+
+    private Map<UUID, Integer> parseProducts(ShoppingCartDto shoppingCart) {
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : shoppingCart.getProducts().entrySet()) {
+            try {
+                requested.put(UUID.fromString(entry.getKey()), entry.getValue());
+            } catch (IllegalArgumentException e) {
+                log.warn("[WarehouseService] Invalid product ID format: {}, skipping", entry.getKey());
+            }
+        }
+        return requested;
+    }
+
+    private Map<UUID, WarehouseItem> loadItems(Collection<UUID> productIds) {
+        if (inventoryCache.isPresent()) {
+            return inventoryCache.get().getItems(productIds);
+        }
+        return warehouseItemRepository.findByProductIdIn(new ArrayList<>(productIds)).stream()
+                .collect(Collectors.toMap(WarehouseItem::getProductId, Function.identity()));
+    }
+
+    private void requireAllFound(Collection<UUID> productIds, Map<UUID, WarehouseItem> items) {
+        for (UUID productId : productIds) {
+            if (!items.containsKey(productId)) {
+                log.error("[WarehouseService] Product not found in warehouse: {}", productId);
+                throw new WarehouseItemNotFoundException(productId);
+            }
+        }
+    }
+
+    private Map<UUID, String> findShortages(Map<UUID, Integer> requested, Map<UUID, WarehouseItem> items) {
+        Map<UUID, String> shortages = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+            WarehouseItem item = items.get(entry.getKey());
+            if (item.getQuantity() < entry.getValue()) {
+                shortages.put(entry.getKey(), "available: " + item.getQuantity() + ", requested: " + entry.getValue());
+            }
+        }
+        return shortages;
+    }
+
+    private BookedProductsDto calculateBooking(Map<UUID, Integer> requested, Map<UUID, WarehouseItem> items) {
+        double totalVolume = 0.0;
+        double totalWeight = 0.0;
+        boolean hasFragile = false;
+
+        for (Map.Entry<UUID, Integer> entry : requested.entrySet()) {
+            WarehouseItem item = items.get(entry.getKey());
+            if (item == null) {
+                continue;
+            }
+            int quantity = entry.getValue();
+            if (item.getWidth() != null && item.getHeight() != null && item.getDepth() != null) {
+                double volume = item.getWidth().doubleValue() * item.getHeight().doubleValue() * item.getDepth().doubleValue();
+                totalVolume += volume * quantity;
+            }
+            if (item.getWeight() != null) {
+                totalWeight += item.getWeight().doubleValue() * quantity;
+            }
+            if (Boolean.TRUE.equals(item.getFragile())) {
+                hasFragile = true;
+            }
+        }
+
+        log.debug("[WarehouseService] Booking details - Volume: {} m³, Weight: {} kg, Fragile: {}",
+                totalVolume, totalWeight, hasFragile);
+        return new BookedProductsDto(totalVolume, totalWeight, hasFragile);
+    }
+
     @Transactional
     public void addProductQuantity(AddProductToWarehouseRequest request) {
         log.info("[WarehouseService] Adding quantity to existing product: {}, quantity: {}",
@@ -192,20 +343,19 @@ public class WarehouseService {
 
         long startTime = System.currentTimeMillis();
         try {
-            WarehouseItem item = warehouseItemRepository.findByProductId(request.getProductId())
-                    .orElseThrow(() -> {
-                        log.error("[WarehouseService] Product not found for quantity addition: {}",
-                                request.getProductId());
-                        return new WarehouseItemNotFoundException(request.getProductId());
-                    });
-
-            int oldQuantity = item.getQuantity();
-            item.setQuantity(item.getQuantity() + request.getQuantity().intValue());
-            warehouseItemRepository.save(item);
+            // приращение в одном UPDATE, без чтения и перезаписи строки, не теряет параллельные изменения
+            int updated = warehouseItemRepository.updateQuantity(request.getProductId(), request.getQuantity().intValue());
+            if (updated == 0) {
+                log.error("[WarehouseService] Product not found for quantity addition: {}",
+                        request.getProductId());
+                throw new WarehouseItemNotFoundException(request.getProductId());
+            }
+            inventoryCache.ifPresent(cache ->
+                    cache.addAfterCommit(Map.of(request.getProductId(), request.getQuantity().intValue())));
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("[WarehouseService] Quantity updated for product: {}. Old: {}, New: {}, Time: {} ms",
-                    request.getProductId(), oldQuantity, item.getQuantity(), duration);
+            log.info("[WarehouseService] Quantity updated for product: {}. Added: {}, Time: {} ms",
+                    request.getProductId(), request.getQuantity(), duration);
         } catch (Exception e) {
             log.error("[WarehouseService] Error adding quantity to product: {}",
                     request.getProductId(), e);
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Те же сценарии при включенном кэше остатков: резерв уменьшает счетчик в памяти,
+ * а остаток в warehouse_items проверяется после пакетного сброса.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "warehouse.inventory-cache.enabled=true")
+class CachedReservationConcurrencyTest extends ReservationConcurrencyTest {
+}
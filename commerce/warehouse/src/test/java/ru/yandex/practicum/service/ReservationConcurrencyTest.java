@@ -0,0 +1,191 @@
+package ru.yandex.practicum.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.dto.shoppingcart.ShoppingCartDto;
+import ru.yandex.practicum.dto.warehouse.AddProductToWarehouseRequest;
+import ru.yandex.practicum.dto.warehouse.NewProductInWarehouseRequest;
+import ru.yandex.practicum.entity.ProductReservation;
+import ru.yandex.practicum.exception.ProductShortageException;
+import ru.yandex.practicum.repository.ProductReservationRepository;
+import ru.yandex.practicum.repository.WarehouseItemRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Параллельные резервы одного товара с ограниченным остатком: резервов принимается ровно столько,
+ * сколько единиц есть на складе, остаток не уходит в минус. Параллельные освобождения и повторные
+ * резервы одной корзины не зачисляют остаток дважды.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class ReservationConcurrencyTest {
+
+    private static final int STOCK = 10;
+    private static final int CARTS = 40;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private WarehouseService warehouseService;
+
+    @Autowired
+    private WarehouseItemRepository warehouseItemRepository;
+
+    @Autowired
+    private ProductReservationRepository productReservationRepository;
+
+    @Autowired
+    private Optional<InventoryCache> inventoryCache;
+
+    @AfterEach
+    void cleanUp() {
+        productReservationRepository.deleteAll();
+        warehouseItemRepository.deleteAll();
+    }
+
+    @Test
+    void parallelReservationsNeverOversellLimitedStock() throws Exception {
+        UUID productId = addProduct(STOCK);
+
+        List<Outcome> outcomes = reserveInParallel(productId, 1);
+
+        assertThat(outcomes).filteredOn(o -> o == Outcome.RESERVED).hasSize(STOCK);
+        assertThat(outcomes).filteredOn(o -> o == Outcome.SHORTAGE).hasSize(CARTS - STOCK);
+        assertStock(productId, 0, STOCK);
+    }
+
+    @Test
+    void parallelMultiUnitReservationsKeepStockConsistent() throws Exception {
+        // 10 единиц по 3 в корзину: проходят три корзины, одна единица остается
+        UUID productId = addProduct(STOCK);
+
+        List<Outcome> outcomes = reserveInParallel(productId, 3);
+
+        assertThat(outcomes).filteredOn(o -> o == Outcome.RESERVED).hasSize(3);
+        assertThat(outcomes).filteredOn(o -> o == Outcome.SHORTAGE).hasSize(CARTS - 3);
+        assertStock(productId, 1, 9);
+    }
+
+    @Test
+    void parallelReleaseAndReReserveOfOneCartNeverCreditStockTwice() throws Exception {
+        UUID productId = addProduct(STOCK);
+        ShoppingCartDto cart = new ShoppingCartDto(UUID.randomUUID(), Map.of(productId.toString(), 4));
+        warehouseService.reserveProducts(cart);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CARTS)) {
+            for (int i = 0; i < CARTS; i++) {
+                boolean release = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (release) {
+                            warehouseService.releaseReservation(cart.getShoppingCartId());
+                        } else {
+                            warehouseService.reserveProducts(cart);
+                        }
+                    } catch (RuntimeException e) {
+                        // параллельный резерв той же корзины откатывается по уникальному ключу - это допустимо
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        // остаток и резерв вместе всегда равны поступлению
+        inventoryCache.ifPresent(InventoryCache::flush);
+        int quantity = warehouseItemRepository.findByProductId(productId).orElseThrow().getQuantity();
+        int reserved = reservedQuantity(productId);
+        assertThat(reserved).isIn(0, 4);
+        assertThat(quantity + reserved).isEqualTo(STOCK);
+
+        // после освобождения доступно ровно поступление: и в базе, и в счетчиках кэша
+        warehouseService.releaseReservation(cart.getShoppingCartId());
+        ShoppingCartDto tooLarge = new ShoppingCartDto(UUID.randomUUID(), Map.of(productId.toString(), STOCK + 1));
+        assertThatThrownBy(() -> warehouseService.reserveProducts(tooLarge))
+                .isInstanceOf(ProductShortageException.class);
+        warehouseService.reserveProducts(new ShoppingCartDto(UUID.randomUUID(), Map.of(productId.toString(), STOCK)));
+        assertStock(productId, 0, STOCK);
+    }
+
+    private List<Outcome> reserveInParallel(UUID productId, int quantity) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CARTS)) {
+            for (int i = 0; i < CARTS; i++) {
+                ShoppingCartDto cart = new ShoppingCartDto(UUID.randomUUID(), Map.of(productId.toString(), quantity));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        warehouseService.reserveProducts(cart);
+                        return Outcome.RESERVED;
+                    } catch (ProductShortageException e) {
+                        return Outcome.SHORTAGE;
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        }
+    }
+
+    private void assertStock(UUID productId, int expectedQuantity, int expectedReserved) {
+        // при кэше остатков списание с warehouse_items выполняется пакетным сбросом
+        inventoryCache.ifPresent(InventoryCache::flush);
+
+        assertThat(warehouseItemRepository.findByProductId(productId))
+                .get()
+                .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(expectedQuantity));
+        assertThat(reservedQuantity(productId)).isEqualTo(expectedReserved);
+    }
+
+    private int reservedQuantity(UUID productId) {
+        return productReservationRepository.findAll().stream()
+                .filter(r -> r.getProductId().equals(productId))
+                .mapToInt(ProductReservation::getQuantity)
+                .sum();
+    }
+
+    private UUID addProduct(int quantity) {
+        UUID productId = UUID.randomUUID();
+        warehouseService.addNewProduct(new NewProductInWarehouseRequest(productId,
+                new NewProductInWarehouseRequest.DimensionDto(BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE),
+                BigDecimal.ONE, false));
+        warehouseService.addProductQuantity(new AddProductToWarehouseRequest(productId, (long) quantity));
+        return productId;
+    }
+
+    private enum Outcome { RESERVED, SHORTAGE }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("aggregator.eviction")
+public class EvictionProperties {
+    private boolean enabled = true;
+    // хаб или устройство, не присылавшие событий дольше этого времени, удаляются из состояния
+    private long hubTtlMs = 86_400_000;
+    private long deviceTtlMs = 86_400_000;
+    // жесткие лимиты; при превышении вытесняются давно не обновлявшиеся хабы до 90% лимита
+    private int maxHubs = 1_000_000;
+    private int maxDevices = 10_000_000;
+    private long checkIntervalMs = 60_000;
+    // топик для последних снапшотов вытесненных хабов; пустое значение - не сохранять
+    private String spillTopic = "";
+}
@@ -14,4 +14,9 @@ public class KafkaConfig {
     private String sensorsTopic;
     private String snapshotsTopic;
     private String consumerGroup;
+
+    // настройки продюсера снапшотов: снапшоты одного хаба почти совпадают, поэтому хорошо сжимаются в пачке
+    private String compressionType = "lz4";
+    private int lingerMs = 5;
+    private int batchSize = 65_536;
 }
\ No newline at end of file
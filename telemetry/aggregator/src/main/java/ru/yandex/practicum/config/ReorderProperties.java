@@ -0,0 +1,16 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("aggregator.reorder")
+public class ReorderProperties {
+    // допустимое опоздание события; 0 - буфер выключен, события применяются сразу
+    private long allowedLatenessMs = 0;
+    private int maxBufferedPerHub = 1000;
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("aggregator.subscription")
+public class SnapshotSubscriptionProperties {
+    private boolean enabled = true;
+    // максимальное число неотправленных сообщений (или хабов при CONFLATE) на одного подписчика
+    private int queueCapacity = 1000;
+}
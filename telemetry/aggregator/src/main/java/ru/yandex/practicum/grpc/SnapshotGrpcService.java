@@ -0,0 +1,65 @@
+package ru.yandex.practicum.grpc;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.service.GrpcService;
+import ru.yandex.practicum.config.SnapshotSubscriptionProperties;
+import ru.yandex.practicum.grpc.telemetry.event.SensorsSnapshotProto;
+import ru.yandex.practicum.grpc.telemetry.snapshot.GetSnapshotRequest;
+import ru.yandex.practicum.grpc.telemetry.snapshot.SnapshotControllerGrpc;
+import ru.yandex.practicum.grpc.telemetry.snapshot.SubscribeSnapshotsRequest;
+import ru.yandex.practicum.service.SnapshotPublisher;
+
+import java.util.Set;
+
+@Slf4j
+@GrpcService
+@RequiredArgsConstructor
+public class SnapshotGrpcService extends SnapshotControllerGrpc.SnapshotControllerImplBase {
+
+    private final SnapshotPublisher snapshotPublisher;
+    private final SnapshotProtoMapper snapshotProtoMapper;
+    private final SnapshotSubscriptionProperties properties;
+
+    @Override
+    public void getSnapshot(GetSnapshotRequest request, StreamObserver<SensorsSnapshotProto> responseObserver) {
+        snapshotPublisher.getLatest(request.getHubId()).ifPresentOrElse(
+                snapshot -> {
+                    responseObserver.onNext(snapshotProtoMapper.toProto(snapshot));
+                    responseObserver.onCompleted();
+                },
+                () -> responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Снапшот для хаба " + request.getHubId() + " не найден")
+                        .asRuntimeException()));
+    }
+
+    @Override
+    public void subscribeSnapshots(SubscribeSnapshotsRequest request,
+                                   StreamObserver<SensorsSnapshotProto> responseObserver) {
+        if (!properties.isEnabled()) {
+            responseObserver.onError(Status.UNAVAILABLE
+                    .withDescription("Подписка на снапшоты отключена")
+                    .asRuntimeException());
+            return;
+        }
+
+        ServerCallStreamObserver<SensorsSnapshotProto> serverObserver =
+                (ServerCallStreamObserver<SensorsSnapshotProto>) responseObserver;
+
+        SnapshotSubscriber subscriber = new SnapshotSubscriber(
+                Set.copyOf(request.getHubIdsList()),
+                request.getDeltasOnly(),
+                request.getOverflowPolicy(),
+                properties.getQueueCapacity(),
+                serverObserver,
+                hubId -> snapshotPublisher.getLatest(hubId).map(snapshotProtoMapper::toProto).orElse(null));
+
+        serverObserver.setOnCancelHandler(() -> snapshotPublisher.unsubscribe(subscriber));
+        serverObserver.setOnReadyHandler(subscriber::drain);
+
+        snapshotPublisher.subscribe(subscriber);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.grpc;
+
+import com.google.protobuf.Timestamp;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorStateProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorsSnapshotProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.util.Map;
+
+@Component
+public class SnapshotProtoMapper {
+
+    public SensorsSnapshotProto toProto(SensorsSnapshotAvro snapshot) {
+        SensorsSnapshotProto.Builder builder = SensorsSnapshotProto.newBuilder()
+                .setHubId(snapshot.getHubId())
+                .setTimestamp(toTimestamp(snapshot.getTimestamp()));
+
+        for (Map.Entry<String, SensorStateAvro> entry : snapshot.getSensorsState().entrySet()) {
+            builder.putSensorsState(entry.getKey(), toProto(entry.getValue()));
+        }
+
+        return builder.build();
+    }
+
+    public SensorsSnapshotProto toDeltaProto(SensorsSnapshotAvro snapshot, String deviceId) {
+        SensorsSnapshotProto.Builder builder = SensorsSnapshotProto.newBuilder()
+                .setHubId(snapshot.getHubId())
+                .setTimestamp(toTimestamp(snapshot.getTimestamp()))
+                .setDelta(true);
+
+        SensorStateAvro state = snapshot.getSensorsState().get(deviceId);
+        if (state != null) {
+            builder.putSensorsState(deviceId, toProto(state));
+        }
+
+        return builder.build();
+    }
+
+    private SensorStateProto toProto(SensorStateAvro state) {
+        SensorStateProto.Builder builder = SensorStateProto.newBuilder()
+                .setTimestamp(toTimestamp(state.getTimestamp()));
+        Object data = state.getData();
+
+        if (data instanceof ClimateSensorAvro climate) {
+            builder.setClimateSensor(ClimateSensorProto.newBuilder()
+                    .setTemperatureC(climate.getTemperatureC())
+                    .setHumidity(climate.getHumidity())
+                    .setCo2Level(climate.getCo2Level()));
+        } else if (data instanceof LightSensorAvro light) {
+            builder.setLightSensor(LightSensorProto.newBuilder()
+                    .setLinkQuality(light.getLinkQuality())
+                    .setLuminosity(light.getLuminosity()));
+        } else if (data instanceof MotionSensorAvro motion) {
+            builder.setMotionSensor(MotionSensorProto.newBuilder()
+                    .setLinkQuality(motion.getLinkQuality())
+                    .setMotion(motion.getMotion())
+                    .setVoltage(motion.getVoltage()));
+        } else if (data instanceof SwitchSensorAvro sensorSwitch) {
+            builder.setSwitchSensor(SwitchSensorProto.newBuilder()
+                    .setState(sensorSwitch.getState()));
+        } else if (data instanceof TemperatureSensorAvro temperature) {
+            builder.setTemperatureSensor(TemperatureSensorProto.newBuilder()
+                    .setTemperatureC(temperature.getTemperatureC())
+                    .setTemperatureF(temperature.getTemperatureF()));
+        }
+
+        return builder.build();
+    }
+
+    private Timestamp toTimestamp(long epochMillis) {
+        return Timestamp.newBuilder()
+                .setSeconds(Math.floorDiv(epochMillis, 1000))
+                .setNanos((int) Math.floorMod(epochMillis, 1000) * 1_000_000)
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package ru.yandex.practicum.grpc;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.grpc.telemetry.event.SensorsSnapshotProto;
+import ru.yandex.practicum.grpc.telemetry.snapshot.OverflowPolicyProto;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Подписчик на снапшоты с ограниченной очередью. Отправка идет только пока транспорт
+ * готов принимать данные (isReady), поэтому медленный клиент не блокирует агрегатор:
+ * при CONFLATE для каждого хаба хранится только последнее состояние (дельты сливаются),
+ * при DROP_OLDEST при переполнении отбрасываются самые старые сообщения.
+ * Если при переполнении вытеснена дельта (или единственное сообщение хаба при CONFLATE), хаб
+ * помечается для повторной синхронизации: новые дельты хаба не ставятся в очередь, а вместо них
+ * отправляется полный снапшот, собранный в момент отправки и поэтому включающий все потерянные изменения.
+ * offer только ставит сообщение в очередь; отправка (drain) выполняется вне цикла опроса Kafka
+ * и вызывает onNext вне монитора очереди, поэтому медленная отправка не задерживает offer.
+ * Ошибка при отправке закрывает подписчика, и публикатор удаляет его при следующей публикации.
+ */
+@Slf4j
+public class SnapshotSubscriber {
+
+    private final Set<String> hubIds;
+    private final boolean deltasOnly;
+    private final boolean conflate;
+    private final int capacity;
+    private final ServerCallStreamObserver<SensorsSnapshotProto> observer;
+    // полный снапшот хаба для повторной синхронизации; null, если хаба уже нет
+    private final Function<String, SensorsSnapshotProto> fullSnapshots;
+
+    private final LinkedHashMap<String, SensorsSnapshotProto> conflated = new LinkedHashMap<>();
+    private final ArrayDeque<SensorsSnapshotProto> queue = new ArrayDeque<>();
+    private final LinkedHashSet<String> resync = new LinkedHashSet<>();
+    // onNext вызывается из одного потока за раз; ReentrantLock не закрепляет виртуальный поток за носителем
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private long dropped;
+    private boolean closed;
+    private boolean drainScheduled;
+
+    public SnapshotSubscriber(Set<String> hubIds,
+                              boolean deltasOnly,
+                              OverflowPolicyProto overflowPolicy,
+                              int capacity,
+                              ServerCallStreamObserver<SensorsSnapshotProto> observer,
+                              Function<String, SensorsSnapshotProto> fullSnapshots) {
+        this.hubIds = hubIds;
+        this.deltasOnly = deltasOnly;
+        this.conflate = overflowPolicy != OverflowPolicyProto.DROP_OLDEST;
+        this.capacity = Math.max(capacity, 1);
+        this.observer = observer;
+        this.fullSnapshots = fullSnapshots;
+    }
+
+    public boolean accepts(String hubId) {
+        return hubIds.isEmpty() || hubIds.contains(hubId);
+    }
+
+    public boolean isDeltasOnly() {
+        return deltasOnly;
+    }
+
+    public Set<String> getHubIds() {
+        return hubIds;
+    }
+
+    /**
+     * @return true, если вызывающий должен запланировать drain: отправка еще не запланирована
+     */
+    public synchronized boolean offer(String hubId, SensorsSnapshotProto message) {
+        if (closed) {
+            return false;
+        }
+
+        if (resync.contains(hubId)) {
+            // изменение войдет в полный снапшот хаба, который соберется при отправке
+            dropped++;
+        } else if (conflate) {
+            SensorsSnapshotProto pending = conflated.get(hubId);
+            if (pending != null) {
+                dropped++;
+                // дельта накладывается на неотправленное сообщение, полный снапшот его заменяет
+                if (message.getDelta()) {
+                    message = pending.toBuilder()
+                            .putAllSensorsState(message.getSensorsStateMap())
+                            .setTimestamp(message.getTimestamp())
+                            .build();
+                }
+            } else if (conflated.size() >= capacity) {
+                Iterator<Map.Entry<String, SensorsSnapshotProto>> eldest = conflated.entrySet().iterator();
+                String evictedHubId = eldest.next().getKey();
+                eldest.remove();
+                dropped++;
+                resync.add(evictedHubId);
+            }
+            conflated.put(hubId, message);
+        } else {
+            if (queue.size() >= capacity) {
+                SensorsSnapshotProto evicted = queue.pollFirst();
+                dropped++;
+                // вытесненный полный снапшот заменят следующие сообщения хаба, потерянную дельту - нет
+                if (evicted.getDelta()) {
+                    resync.add(evicted.getHubId());
+                }
+            }
+            queue.addLast(message);
+        }
+
+        if (drainScheduled) {
+            return false;
+        }
+        drainScheduled = true;
+        return true;
+    }
+
+    public void drain() {
+        sendLock.lock();
+        try {
+            while (true) {
+                String resyncHubId;
+                SensorsSnapshotProto next;
+                synchronized (this) {
+                    if (closed || !observer.isReady()) {
+                        drainScheduled = false;
+                        return;
+                    }
+                    // хабы с вытесненными сообщениями ждут дольше остальных и отправляются первыми
+                    resyncHubId = pollResync();
+                    next = resyncHubId == null ? poll() : null;
+                    if (resyncHubId == null && next == null) {
+                        drainScheduled = false;
+                        return;
+                    }
+                }
+                if (resyncHubId != null) {
+                    next = fullSnapshots.apply(resyncHubId);
+                    if (next == null) {
+                        continue;
+                    }
+                }
+                if (!send(next)) {
+                    return;
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        conflated.clear();
+        queue.clear();
+        resync.clear();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    private boolean send(SensorsSnapshotProto message) {
+        try {
+            observer.onNext(message);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to deliver snapshot to subscriber, closing subscription", e);
+            close();
+            try {
+                observer.onError(Status.INTERNAL.withDescription("Ошибка отправки снапшота").asRuntimeException());
+            } catch (RuntimeException ignored) {
+                // вызов уже завершен или отменен клиентом
+            }
+            return false;
+        }
+    }
+
+    private String pollResync() {
+        Iterator<String> iterator = resync.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        String hubId = iterator.next();
+        iterator.remove();
+        return hubId;
+    }
+
+    private SensorsSnapshotProto poll() {
+        if (conflate) {
+            Iterator<SensorsSnapshotProto> iterator = conflated.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            SensorsSnapshotProto next = iterator.next();
+            iterator.remove();
+            return next;
+        }
+        return queue.pollFirst();
+    }
+}
@@ -10,13 +10,16 @@ import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.EvictionProperties;
 import ru.yandex.practicum.config.KafkaConfig;
 import ru.yandex.practicum.deserializer.SensorEventDeserializer;
 import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.logging.SampledLogger;
 
 import java.time.Duration;
 import java.util.List;
@@ -28,13 +31,20 @@ import java.util.Properties;
 @RequiredArgsConstructor
 public class AggregationStarter {
 
+    private static final SampledLogger sampledLog =
+            new SampledLogger(AggregationStarter.class, 1000, Duration.ofSeconds(10));
+
     private final SnapshotAggregationService aggregationService;
     private final SnapshotMapperService snapshotMapperService;
+    private final EventReorderBuffer reorderBuffer;
     private final KafkaConfig kafkaConfig;
+    private final EvictionProperties evictionProperties;
 
     private volatile boolean running = true;
     private Consumer<String, SensorEventAvro> consumer;
     private Producer<String, byte[]> producer;
+    private int snapshotSentCount;
+    private long lastEvictionMillis = System.currentTimeMillis();
 
     public void start() {
         log.info("Starting Aggregation Service...");
@@ -55,6 +65,9 @@ public class AggregationStarter {
                 try {
                     ConsumerRecords<String, SensorEventAvro> records = consumer.poll(Duration.ofMillis(1000));
 
+                    reorderBuffer.flushExpired(this::applyEvent);
+                    evictIdleStateIfDue();
+
                     if (records.isEmpty()) {
                         continue;
                     }
@@ -114,17 +127,21 @@ public class AggregationStarter {
                 "org.apache.kafka.common.serialization.ByteArraySerializer");
         producerProps.put("acks", "all");
         producerProps.put("retries", "3");
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaConfig.getCompressionType());
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, String.valueOf(kafkaConfig.getLingerMs()));
+        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(kafkaConfig.getBatchSize()));
 
         consumer = new KafkaConsumer<>(consumerProps);
         producer = new KafkaProducer<>(producerProps);
 
-        log.info("Kafka clients initialized successfully with bootstrap servers: {}",
-                kafkaConfig.getBootstrapServers());
+        log.info("Kafka clients initialized successfully with bootstrap servers: {}, compression: {}, linger.ms: {}, batch.size: {}",
+                kafkaConfig.getBootstrapServers(), kafkaConfig.getCompressionType(),
+                kafkaConfig.getLingerMs(), kafkaConfig.getBatchSize());
     }
 
     private void processRecords(ConsumerRecords<String, SensorEventAvro> records) {
         int processedCount = 0;
-        int snapshotSentCount = 0;
+        snapshotSentCount = 0;
 
         for (ConsumerRecord<String, SensorEventAvro> record : records) {
             try {
@@ -132,14 +149,7 @@ public class AggregationStarter {
                 log.debug("Processing event from device: {}, hub: {}, partition: {}, offset: {}",
                         event.getId(), event.getHubId(), record.partition(), record.offset());
 
-                Optional<SensorsSnapshotAvro> snapshotOpt = aggregationService.updateState(event);
-
-                if (snapshotOpt.isPresent()) {
-                    SensorsSnapshotAvro snapshot = snapshotOpt.get();
-                    sendSnapshotToKafka(snapshot);
-                    snapshotSentCount++;
-                }
-
+                reorderBuffer.add(event, this::applyEvent);
                 processedCount++;
 
             } catch (Exception e) {
@@ -148,7 +158,50 @@ public class AggregationStarter {
             }
         }
 
-        log.info("Processed {} events, sent {} snapshots", processedCount, snapshotSentCount);
+        sampledLog.infoForKey("poll", "Processed {} events, sent {} snapshots, buffered {}, dropped late {}",
+                processedCount, snapshotSentCount, reorderBuffer.getBufferedCount(),
+                reorderBuffer.getDroppedLateCount());
+    }
+
+    private void applyEvent(SensorEventAvro event) {
+        Optional<SensorsSnapshotAvro> snapshotOpt = aggregationService.updateState(event);
+
+        if (snapshotOpt.isPresent()) {
+            sendSnapshotToKafka(snapshotOpt.get());
+            snapshotSentCount++;
+        }
+    }
+
+    private void evictIdleStateIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastEvictionMillis < evictionProperties.getCheckIntervalMs()) {
+            return;
+        }
+        lastEvictionMillis = now;
+
+        if (evictionProperties.isEnabled()) {
+            reorderBuffer.evictIdle(evictionProperties.getHubTtlMs());
+        }
+        String spillTopic = evictionProperties.getSpillTopic();
+        if (spillTopic == null || spillTopic.isBlank()) {
+            aggregationService.evictIdleState(snapshot -> { });
+        } else {
+            aggregationService.evictIdleState(snapshot -> spillSnapshot(spillTopic, snapshot));
+        }
+    }
+
+    private void spillSnapshot(String spillTopic, SensorsSnapshotAvro snapshot) {
+        try {
+            byte[] snapshotBytes = snapshotMapperService.snapshotToAvroBytes(snapshot);
+            producer.send(new ProducerRecord<>(spillTopic, snapshot.getHubId(), snapshotBytes), (metadata, exception) -> {
+                if (exception != null) {
+                    log.error("Failed to spill evicted snapshot for hub: {} to topic: {}",
+                            snapshot.getHubId(), spillTopic, exception);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to spill evicted snapshot for hub: {}", snapshot.getHubId(), e);
+        }
     }
 
     private void sendSnapshotToKafka(SensorsSnapshotAvro snapshot) {
@@ -168,7 +221,7 @@ public class AggregationStarter {
                 }
             });
 
-            log.info("Snapshot queued for hub: {} with {} devices",
+            sampledLog.info("Snapshot queued for hub: {} with {} devices",
                     snapshot.getHubId(), snapshot.getSensorsState().size());
 
         } catch (Exception e) {
@@ -181,6 +234,7 @@ public class AggregationStarter {
 
         try {
             if (producer != null) {
+                reorderBuffer.flushAll(this::applyEvent);
                 producer.flush();
                 log.info("Producer flush completed");
             }
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.ReorderProperties;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Буфер переупорядочивания событий по времени события в пределах хаба.
+ * Событие выпускается, когда водяной знак хаба (максимальное время события минус
+ * допустимое опоздание) его обогнал, либо когда оно пролежало в буфере дольше
+ * допустимого опоздания по времени обработки. События старше уже выпущенных
+ * считаются безнадежно опоздавшими и отбрасываются. Граница выпущенных событий хаба хранится
+ * и после того, как его буфер опустел, и удаляется только вместе с хабом по TTL (см. {@link #evictIdle}).
+ * <p>
+ * Смещения Kafka фиксируются после обработки пачки, поэтому при аварийной остановке
+ * события, еще лежащие в буфере, теряются - не более чем за окно опоздания.
+ */
+@Slf4j
+@Component
+public class EventReorderBuffer {
+
+    private static final Comparator<BufferedEvent> BY_EVENT_TIME =
+            Comparator.comparingLong(BufferedEvent::timestamp);
+
+    private final long allowedLatenessMs;
+    private final long maxWaitNanos;
+    private final int maxBufferedPerHub;
+    private final Map<String, HubBuffer> buffers = new HashMap<>();
+
+    private int bufferedCount;
+    private long droppedLate;
+    private long forcedReleases;
+
+    public EventReorderBuffer(ReorderProperties properties) {
+        this.allowedLatenessMs = properties.getAllowedLatenessMs();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(allowedLatenessMs);
+        this.maxBufferedPerHub = properties.getMaxBufferedPerHub();
+    }
+
+    public void add(SensorEventAvro event, Consumer<SensorEventAvro> sink) {
+        if (allowedLatenessMs <= 0) {
+            sink.accept(event);
+            return;
+        }
+
+        HubBuffer buffer = buffers.computeIfAbsent(event.getHubId(), id -> new HubBuffer());
+        long timestamp = event.getTimestamp();
+
+        if (timestamp < buffer.lastReleased) {
+            droppedLate++;
+            log.debug("Dropping late event for hub: {}, device: {}, event time: {}, released up to: {}",
+                    event.getHubId(), event.getId(), timestamp, buffer.lastReleased);
+            return;
+        }
+
+        long now = System.nanoTime();
+        buffer.lastSeenNanos = now;
+        buffer.maxEventTime = Math.max(buffer.maxEventTime, timestamp);
+        buffer.offer(new BufferedEvent(event, timestamp, now));
+        bufferedCount++;
+
+        while (buffer.pending.size() > maxBufferedPerHub) {
+            forcedReleases++;
+            release(buffer, sink);
+        }
+
+        long watermark = buffer.maxEventTime - allowedLatenessMs;
+        while (!buffer.pending.isEmpty() && buffer.pending.peek().timestamp() <= watermark) {
+            release(buffer, sink);
+        }
+    }
+
+    /**
+     * Выпускает события, пролежавшие в буфере дольше допустимого опоздания.
+     * Вызывается на каждой итерации цикла опроса, чтобы затихшие хабы не держали события вечно.
+     */
+    public void flushExpired(Consumer<SensorEventAvro> sink) {
+        if (allowedLatenessMs <= 0 || buffers.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (HubBuffer buffer : buffers.values()) {
+            while (!buffer.pending.isEmpty() && now - buffer.oldestArrival() >= maxWaitNanos) {
+                release(buffer, sink);
+            }
+        }
+    }
+
+    /**
+     * Удаляет пустые буферы хабов, не присылавших событий дольше hubTtlMs, вместе с их границей
+     * выпущенных событий. Вызывается вместе с вытеснением состояния хабов (aggregator.eviction.hub-ttl-ms).
+     */
+    public void evictIdle(long hubTtlMs) {
+        long seenBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(hubTtlMs);
+        buffers.values().removeIf(buffer -> buffer.pending.isEmpty() && buffer.lastSeenNanos - seenBefore < 0);
+    }
+
+    public void flushAll(Consumer<SensorEventAvro> sink) {
+        for (HubBuffer buffer : buffers.values()) {
+            while (!buffer.pending.isEmpty()) {
+                release(buffer, sink);
+            }
+        }
+        buffers.clear();
+    }
+
+    public int getHubCount() {
+        return buffers.size();
+    }
+
+    public int getBufferedCount() {
+        return bufferedCount;
+    }
+
+    public long getDroppedLateCount() {
+        return droppedLate;
+    }
+
+    public long getForcedReleaseCount() {
+        return forcedReleases;
+    }
+
+    private void release(HubBuffer buffer, Consumer<SensorEventAvro> sink) {
+        bufferedCount--;
+        buffer.release(sink);
+    }
+
+    private static final class BufferedEvent {
+        private final SensorEventAvro event;
+        private final long timestamp;
+        private final long arrivedAtNanos;
+        private boolean released;
+
+        private BufferedEvent(SensorEventAvro event, long timestamp, long arrivedAtNanos) {
+            this.event = event;
+            this.timestamp = timestamp;
+            this.arrivedAtNanos = arrivedAtNanos;
+        }
+
+        private long timestamp() {
+            return timestamp;
+        }
+    }
+
+    private static final class HubBuffer {
+        private final PriorityQueue<BufferedEvent> pending = new PriorityQueue<>(BY_EVENT_TIME);
+        // те же события в порядке поступления; выпущенные снимаются с головы при выпуске
+        private final ArrayDeque<BufferedEvent> arrivals = new ArrayDeque<>();
+        private long maxEventTime = Long.MIN_VALUE;
+        private long lastReleased = Long.MIN_VALUE;
+        private long lastSeenNanos;
+
+        private void offer(BufferedEvent event) {
+            pending.add(event);
+            arrivals.addLast(event);
+        }
+
+        private void release(Consumer<SensorEventAvro> sink) {
+            BufferedEvent next = pending.poll();
+            next.released = true;
+            while (!arrivals.isEmpty() && arrivals.peekFirst().released) {
+                arrivals.pollFirst();
+            }
+            lastReleased = next.timestamp;
+            sink.accept(next.event);
+        }
+
+        // вызывается только для непустого буфера: голова очереди поступления всегда не выпущена
+        private long oldestArrival() {
+            return arrivals.peekFirst().arrivedAtNanos;
+        }
+    }
+}
@@ -1,20 +1,29 @@
 package ru.yandex.practicum.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.config.EvictionProperties;
 import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
-import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.logging.SampledLogger;
+import ru.yandex.practicum.state.SensorStateStore;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class SnapshotAggregationService {
 
-    private final Map<String, SensorsSnapshotAvro> snapshots = new HashMap<>();
+    private static final SampledLogger sampledLog =
+            new SampledLogger(SnapshotAggregationService.class, 1000, Duration.ofSeconds(10));
+
+    private final SensorStateStore stateStore;
+    private final EvictionProperties evictionProperties;
+    private final SnapshotPublisher snapshotPublisher;
 
     public Optional<SensorsSnapshotAvro> updateState(SensorEventAvro event) {
         String hubId = event.getHubId();
@@ -22,88 +31,52 @@ public class SnapshotAggregationService {
 
         log.debug("Updating state for hub: {}, device: {}", hubId, deviceId);
 
-        SensorsSnapshotAvro snapshot = snapshots.computeIfAbsent(hubId, this::createEmptySnapshot);
-
-        if (!shouldUpdate(snapshot, deviceId, event)) {
+        if (!stateStore.update(event)) {
             log.debug("No update needed for device: {}", deviceId);
             return Optional.empty();
         }
 
-        SensorStateAvro newState = SensorStateAvro.newBuilder()
-                .setTimestamp(event.getTimestamp())
-                .setData(event.getPayload())
-                .build();
-
-        Map<String, SensorStateAvro> newStateMap = new HashMap<>(snapshot.getSensorsState());
-        newStateMap.put(deviceId, newState);
-
-        SensorsSnapshotAvro updatedSnapshot = SensorsSnapshotAvro.newBuilder()
-                .setHubId(hubId)
-                .setTimestamp(event.getTimestamp())
-                .setSensorsState(newStateMap)
-                .build();
-
-        snapshots.put(hubId, updatedSnapshot);
+        SensorsSnapshotAvro updatedSnapshot = stateStore.getSnapshot(hubId);
+        snapshotPublisher.publish(updatedSnapshot, deviceId);
 
-        log.info("Snapshot updated for hub: {}, device: {}", hubId, deviceId);
+        sampledLog.info("Snapshot updated for hub: {}, device: {}", hubId, deviceId);
         return Optional.of(updatedSnapshot);
     }
 
-    private boolean shouldUpdate(SensorsSnapshotAvro snapshot, String deviceId, SensorEventAvro event) {
-        if (!snapshot.getSensorsState().containsKey(deviceId)) {
-            log.debug("New device detected: {}", deviceId);
-            return true;
-        }
-
-        SensorStateAvro oldState = snapshot.getSensorsState().get(deviceId);
-
-        if (oldState.getTimestamp() > event.getTimestamp()) {
-            log.debug("Ignoring older event for device: {}. Current: {}, Event: {}",
-                    deviceId, oldState.getTimestamp(), event.getTimestamp());
-            return false;
-        }
-
-        if (oldState.getTimestamp() == event.getTimestamp()) {
-            if (dataEquals(oldState.getData(), event.getPayload())) {
-                log.debug("Duplicate event with same timestamp and data for device: {}", deviceId);
-                return false;
-            }
-            log.debug("Event with same timestamp but different data for device: {}", deviceId);
-        }
-
-        if (dataEquals(oldState.getData(), event.getPayload())) {
-            log.debug("Data unchanged but updating timestamp for device: {}", deviceId);
-            return true;
-        }
-
-        log.debug("Data changed for device: {}", deviceId);
-        return true;
+    // для чтения из других потоков используйте SnapshotPublisher.getLatest
+    public SensorsSnapshotAvro getSnapshot(String hubId) {
+        return stateStore.getSnapshot(hubId);
     }
 
-    private SensorsSnapshotAvro createEmptySnapshot(String hubId) {
-        return SensorsSnapshotAvro.newBuilder()
-                .setHubId(hubId)
-                .setTimestamp(0L)
-                .setSensorsState(new HashMap<>())
-                .build();
+    public int getSnapshotCount() {
+        return stateStore.getHubCount();
     }
 
-    private boolean dataEquals(Object oldData, Object newData) {
-        if (oldData == null && newData == null) return true;
-        if (oldData == null || newData == null) return false;
-        return oldData.equals(newData);
+    public int getDeviceCount() {
+        return stateStore.getDeviceCount();
     }
 
-    public SensorsSnapshotAvro getSnapshot(String hubId) {
-        return snapshots.get(hubId);
-    }
+    public void evictIdleState(Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        if (!evictionProperties.isEnabled()) {
+            return;
+        }
 
-    public int getSnapshotCount() {
-        return snapshots.size();
+        int hubsBefore = stateStore.getHubCount();
+        int devicesBefore = stateStore.getDeviceCount();
+        stateStore.evict(evictionProperties, System.currentTimeMillis(), snapshot -> {
+            snapshotPublisher.remove(snapshot.getHubId());
+            onHubEvicted.accept(snapshot);
+        });
+        // снапшоты хабов, у которых удалены только отдельные устройства, отдаются GetSnapshot уже без них
+        int refreshed = snapshotPublisher.refreshLatest(stateStore::getSnapshot);
+
+        log.info("State eviction completed. Resident hubs: {} (-{}), devices: {} (-{}), refreshed snapshots: {}",
+                stateStore.getHubCount(), hubsBefore - stateStore.getHubCount(),
+                stateStore.getDeviceCount(), devicesBefore - stateStore.getDeviceCount(), refreshed);
     }
 
     public void clearSnapshots() {
-        snapshots.clear();
+        stateStore.clear();
         log.info("All snapshots cleared");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.SnapshotSubscriptionProperties;
+import ru.yandex.practicum.grpc.SnapshotProtoMapper;
+import ru.yandex.practicum.grpc.SnapshotSubscriber;
+import ru.yandex.practicum.grpc.telemetry.event.SensorsSnapshotProto;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Раздает обновленные снапшоты gRPC-подписчикам и хранит последний опубликованный снапшот
+ * каждого хаба для точечных запросов. Снапшоты Avro после сборки не изменяются,
+ * поэтому читать их из потоков gRPC безопасно, не трогая хранилище состояния агрегатора.
+ * Отправка подписчикам выполняется в виртуальных потоках, чтобы сериализация и ошибки
+ * отдельного клиента не задерживали и не прерывали цикл опроса Kafka.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SnapshotPublisher {
+
+    private final SnapshotSubscriptionProperties properties;
+    private final SnapshotProtoMapper snapshotProtoMapper;
+
+    private final Map<String, SensorsSnapshotAvro> latest = new ConcurrentHashMap<>();
+    private final Set<SnapshotSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public void publish(SensorsSnapshotAvro snapshot, String changedDeviceId) {
+        // последний снапшот нужен GetSnapshot и при отключенной подписке
+        String hubId = snapshot.getHubId();
+        latest.put(hubId, snapshot);
+
+        if (!properties.isEnabled() || subscribers.isEmpty()) {
+            return;
+        }
+
+        SensorsSnapshotProto full = null;
+        SensorsSnapshotProto delta = null;
+        for (SnapshotSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                unsubscribe(subscriber);
+                continue;
+            }
+            if (!subscriber.accepts(hubId)) {
+                continue;
+            }
+            if (subscriber.isDeltasOnly()) {
+                if (delta == null) {
+                    delta = snapshotProtoMapper.toDeltaProto(snapshot, changedDeviceId);
+                }
+                offer(subscriber, hubId, delta);
+            } else {
+                if (full == null) {
+                    full = snapshotProtoMapper.toProto(snapshot);
+                }
+                offer(subscriber, hubId, full);
+            }
+        }
+    }
+
+    public void remove(String hubId) {
+        latest.remove(hubId);
+    }
+
+    /**
+     * Заменяет последние снапшоты хабов, состояние которых изменилось без публикации, например
+     * после удаления простаивающих устройств. Вызывается из потока, который публикует снапшоты.
+     *
+     * @param current текущий снапшот хаба из хранилища состояния; тот же объект, если состояние не менялось
+     * @return число замененных снапшотов
+     */
+    public int refreshLatest(Function<String, SensorsSnapshotAvro> current) {
+        int refreshed = 0;
+        Iterator<Map.Entry<String, SensorsSnapshotAvro>> iterator = latest.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SensorsSnapshotAvro> entry = iterator.next();
+            SensorsSnapshotAvro snapshot = current.apply(entry.getKey());
+            if (snapshot == null) {
+                iterator.remove();
+                refreshed++;
+            } else if (snapshot != entry.getValue()) {
+                entry.setValue(snapshot);
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    public Optional<SensorsSnapshotAvro> getLatest(String hubId) {
+        return Optional.ofNullable(latest.get(hubId));
+    }
+
+    public void subscribe(SnapshotSubscriber subscriber) {
+        subscribers.add(subscriber);
+        log.info("Snapshot subscriber added for hubs: {}, active subscribers: {}",
+                subscriber.getHubIds().isEmpty() ? "all" : subscriber.getHubIds(), subscribers.size());
+
+        // новый подписчик сразу получает текущее состояние запрошенных хабов
+        for (String hubId : subscriber.getHubIds()) {
+            SensorsSnapshotAvro snapshot = latest.get(hubId);
+            if (snapshot != null) {
+                offer(subscriber, hubId, snapshotProtoMapper.toProto(snapshot));
+            }
+        }
+    }
+
+    public void unsubscribe(SnapshotSubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.close();
+        log.info("Snapshot subscriber removed, dropped messages: {}, active subscribers: {}",
+                subscriber.getDroppedCount(), subscribers.size());
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void offer(SnapshotSubscriber subscriber, String hubId, SensorsSnapshotProto message) {
+        if (subscriber.offer(hubId, message)) {
+            deliveryExecutor.execute(subscriber::drain);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.state;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.EvictionProperties;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aggregator.state.backend", havingValue = "map", matchIfMissing = true)
+public class MapSensorStateStore implements SensorStateStore {
+
+    // порядок доступа: в начале - хабы, дольше всех не получавшие событий
+    private final LinkedHashMap<String, HubState> hubs = new LinkedHashMap<>(16, 0.75f, true);
+    private int deviceCount;
+
+    @Override
+    public boolean update(SensorEventAvro event) {
+        String hubId = event.getHubId();
+        String deviceId = event.getId();
+
+        HubState hub = hubs.get(hubId);
+        if (hub == null) {
+            hub = new HubState(createEmptySnapshot(hubId));
+            hubs.put(hubId, hub);
+        }
+        long now = System.currentTimeMillis();
+        hub.lastSeen = now;
+
+        SensorsSnapshotAvro snapshot = hub.snapshot;
+
+        if (!shouldUpdate(snapshot, deviceId, event)) {
+            return false;
+        }
+
+        SensorStateAvro newState = SensorStateAvro.newBuilder()
+                .setTimestamp(event.getTimestamp())
+                .setData(event.getPayload())
+                .build();
+
+        Map<String, SensorStateAvro> newStateMap = new HashMap<>(snapshot.getSensorsState());
+        if (newStateMap.put(deviceId, newState) == null) {
+            deviceCount++;
+        }
+        hub.deviceLastSeen.put(deviceId, now);
+
+        hub.snapshot = SensorsSnapshotAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(event.getTimestamp())
+                .setSensorsState(newStateMap)
+                .build();
+        return true;
+    }
+
+    @Override
+    public SensorsSnapshotAvro getSnapshot(String hubId) {
+        HubState hub = hubs.get(hubId);
+        return hub == null ? null : hub.snapshot;
+    }
+
+    @Override
+    public int getHubCount() {
+        return hubs.size();
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    @Override
+    public void evict(EvictionProperties policy, long nowMillis, Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        Iterator<HubState> iterator = hubs.values().iterator();
+        while (iterator.hasNext()) {
+            HubState hub = iterator.next();
+            long deviceSeenBefore = nowMillis - policy.getDeviceTtlMs();
+            if (nowMillis - hub.lastSeen > policy.getHubTtlMs() || allDevicesIdle(hub, deviceSeenBefore)) {
+                // хаб без активных устройств удаляется целиком, чтобы его последний снапшот был сохранен
+                removeHub(iterator, hub, onHubEvicted);
+            } else {
+                evictIdleDevices(hub, deviceSeenBefore);
+            }
+        }
+
+        if (hubs.size() > policy.getMaxHubs() || deviceCount > policy.getMaxDevices()) {
+            int hubTarget = (int) (policy.getMaxHubs() * 0.9);
+            int deviceTarget = (int) (policy.getMaxDevices() * 0.9);
+            iterator = hubs.values().iterator();
+            while (iterator.hasNext() && (hubs.size() > hubTarget || deviceCount > deviceTarget)) {
+                removeHub(iterator, iterator.next(), onHubEvicted);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        hubs.clear();
+        deviceCount = 0;
+    }
+
+    private void removeHub(Iterator<HubState> iterator, HubState hub, Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        iterator.remove();
+        deviceCount -= hub.snapshot.getSensorsState().size();
+        onHubEvicted.accept(hub.snapshot);
+    }
+
+    private boolean allDevicesIdle(HubState hub, long seenBefore) {
+        for (long lastSeen : hub.deviceLastSeen.values()) {
+            if (lastSeen >= seenBefore) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evictIdleDevices(HubState hub, long seenBefore) {
+        Map<String, SensorStateAvro> states = null;
+        Iterator<Map.Entry<String, Long>> iterator = hub.deviceLastSeen.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> device = iterator.next();
+            if (device.getValue() >= seenBefore) {
+                continue;
+            }
+            if (states == null) {
+                states = new HashMap<>(hub.snapshot.getSensorsState());
+            }
+            states.remove(device.getKey());
+            iterator.remove();
+            deviceCount--;
+        }
+
+        if (states != null) {
+            hub.snapshot = SensorsSnapshotAvro.newBuilder(hub.snapshot)
+                    .setSensorsState(states)
+                    .build();
+        }
+    }
+
+    private boolean shouldUpdate(SensorsSnapshotAvro snapshot, String deviceId, SensorEventAvro event) {
+        if (!snapshot.getSensorsState().containsKey(deviceId)) {
+            log.debug("New device detected: {}", deviceId);
+            return true;
+        }
+
+        SensorStateAvro oldState = snapshot.getSensorsState().get(deviceId);
+
+        if (oldState.getTimestamp() > event.getTimestamp()) {
+            log.debug("Ignoring older event for device: {}. Current: {}, Event: {}",
+                    deviceId, oldState.getTimestamp(), event.getTimestamp());
+            return false;
+        }
+
+        if (oldState.getTimestamp() == event.getTimestamp()) {
+            if (dataEquals(oldState.getData(), event.getPayload())) {
+                log.debug("Duplicate event with same timestamp and data for device: {}", deviceId);
+                return false;
+            }
+            log.debug("Event with same timestamp but different data for device: {}", deviceId);
+        }
+
+        if (dataEquals(oldState.getData(), event.getPayload())) {
+            log.debug("Data unchanged but updating timestamp for device: {}", deviceId);
+            return true;
+        }
+
+        log.debug("Data changed for device: {}", deviceId);
+        return true;
+    }
+
+    private SensorsSnapshotAvro createEmptySnapshot(String hubId) {
+        return SensorsSnapshotAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(0L)
+                .setSensorsState(new HashMap<>())
+                .build();
+    }
+
+    private boolean dataEquals(Object oldData, Object newData) {
+        if (oldData == null && newData == null) return true;
+        if (oldData == null || newData == null) return false;
+        return oldData.equals(newData);
+    }
+
+    private static final class HubState {
+        private SensorsSnapshotAvro snapshot;
+        private long lastSeen;
+        private final Map<String, Long> deviceLastSeen = new HashMap<>();
+
+        private HubState(SensorsSnapshotAvro snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package ru.yandex.practicum.state;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.EvictionProperties;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Компактное хранилище состояния: идентификаторы хабов и устройств интернируются в int,
+ * а показания лежат в плоских примитивных массивах с фиксированной раскладкой
+ * по типу датчика (см. SensorEvent.avdl). Avro-объекты создаются только при сборке снапшота.
+ * Последний собранный снапшот хаба запоминается: при следующей сборке заново кодируются только
+ * устройства, изменившиеся после него, остальные SensorStateAvro берутся из прошлого снапшота.
+ * Это те же объекты, что SnapshotPublisher хранит как последнее состояние хаба, поэтому
+ * кэш почти не увеличивает расход памяти.
+ * <pre>
+ *   CLIMATE     temperature_c, humidity, co2_level
+ *   LIGHT       link_quality, luminosity
+ *   MOTION      link_quality, motion (0/1), voltage
+ *   SWITCH      state (0/1)
+ *   TEMPERATURE temperature_c, temperature_f
+ * </pre>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aggregator.state.backend", havingValue = "primitive")
+public class PrimitiveSensorStateStore implements SensorStateStore {
+
+    private static final int FIELDS = 3;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte CLIMATE = 1;
+    private static final byte LIGHT = 2;
+    private static final byte MOTION = 3;
+    private static final byte SWITCH = 4;
+    private static final byte TEMPERATURE = 5;
+
+    // слоты удаленных хабов и устройств переиспользуются через стеки свободных индексов
+    private final StringIntMap hubIndex = new StringIntMap(INITIAL_CAPACITY);
+    private String[] hubIds = new String[INITIAL_CAPACITY];
+    private long[] hubTimestamps = new long[INITIAL_CAPACITY];
+    private long[] hubLastSeen = new long[INITIAL_CAPACITY];
+    private StringIntMap[] hubDevices = new StringIntMap[INITIAL_CAPACITY];
+    private long[] hubVersions = new long[INITIAL_CAPACITY];
+    private SensorsSnapshotAvro[] hubSnapshots = new SensorsSnapshotAvro[INITIAL_CAPACITY];
+    private long[] hubSnapshotVersions = new long[INITIAL_CAPACITY];
+    private int hubSlots;
+    private int hubCount;
+    private int[] freeHubs = new int[16];
+    private int freeHubCount;
+
+    private long[] deviceTimestamps = new long[INITIAL_CAPACITY];
+    private long[] deviceLastSeen = new long[INITIAL_CAPACITY];
+    private long[] deviceVersions = new long[INITIAL_CAPACITY];
+    private byte[] deviceTypes = new byte[INITIAL_CAPACITY];
+    private int[] deviceFields = new int[INITIAL_CAPACITY * FIELDS];
+    private int deviceSlots;
+    private int deviceCount;
+    private int[] freeDevices = new int[16];
+    private int freeDeviceCount;
+
+    // буфер для разбора входящего события, чтобы не выделять массив на каждое событие
+    private final int[] incoming = new int[FIELDS];
+
+    // номер последнего изменения состояния; по нему определяется, что изменилось после сборки снапшота
+    private long version;
+
+    @Override
+    public boolean update(SensorEventAvro event) {
+        byte type = decode(event.getPayload(), incoming);
+        if (type == 0) {
+            log.warn("Unknown sensor payload type: {}", event.getPayload());
+            return false;
+        }
+
+        int hub = hubIndex.get(event.getHubId());
+        if (hub == StringIntMap.MISSING) {
+            hub = addHub(event.getHubId());
+        }
+
+        long now = System.currentTimeMillis();
+        hubLastSeen[hub] = now;
+
+        StringIntMap devices = hubDevices[hub];
+        int device = devices.get(event.getId());
+        long timestamp = event.getTimestamp();
+
+        if (device == StringIntMap.MISSING) {
+            device = addDevice();
+            devices.put(event.getId(), device);
+        } else {
+            long current = deviceTimestamps[device];
+            if (current > timestamp) {
+                return false;
+            }
+            if (current == timestamp && sameData(device, type)) {
+                return false;
+            }
+        }
+
+        deviceTimestamps[device] = timestamp;
+        deviceLastSeen[device] = now;
+        deviceTypes[device] = type;
+        System.arraycopy(incoming, 0, deviceFields, device * FIELDS, FIELDS);
+        hubTimestamps[hub] = timestamp;
+        deviceVersions[device] = ++version;
+        hubVersions[hub] = version;
+        return true;
+    }
+
+    @Override
+    public SensorsSnapshotAvro getSnapshot(String hubId) {
+        int hub = hubIndex.get(hubId);
+        if (hub == StringIntMap.MISSING) {
+            return null;
+        }
+
+        SensorsSnapshotAvro cached = hubSnapshots[hub];
+        if (cached != null && hubSnapshotVersions[hub] == hubVersions[hub]) {
+            return cached;
+        }
+
+        long builtVersion = cached == null ? -1 : hubSnapshotVersions[hub];
+        StringIntMap devices = hubDevices[hub];
+        Map<String, SensorStateAvro> states = new HashMap<>(devices.size() * 2);
+        for (int slot = 0; slot < devices.capacity(); slot++) {
+            String deviceId = devices.keyAt(slot);
+            if (deviceId == null) {
+                continue;
+            }
+            int device = devices.valueAt(slot);
+            SensorStateAvro state = deviceVersions[device] <= builtVersion
+                    ? cached.getSensorsState().get(deviceId)
+                    : null;
+            if (state == null) {
+                state = SensorStateAvro.newBuilder()
+                        .setTimestamp(deviceTimestamps[device])
+                        .setData(encode(device))
+                        .build();
+            }
+            states.put(deviceId, state);
+        }
+
+        SensorsSnapshotAvro snapshot = SensorsSnapshotAvro.newBuilder()
+                .setHubId(hubIds[hub])
+                .setTimestamp(hubTimestamps[hub])
+                .setSensorsState(states)
+                .build();
+        hubSnapshots[hub] = snapshot;
+        hubSnapshotVersions[hub] = hubVersions[hub];
+        return snapshot;
+    }
+
+    @Override
+    public int getHubCount() {
+        return hubCount;
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    @Override
+    public void evict(EvictionProperties policy, long nowMillis, Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        long deviceSeenBefore = nowMillis - policy.getDeviceTtlMs();
+        List<String> idleDevices = new ArrayList<>();
+
+        for (int hub = 0; hub < hubSlots; hub++) {
+            if (hubIds[hub] == null) {
+                continue;
+            }
+            if (nowMillis - hubLastSeen[hub] > policy.getHubTtlMs()) {
+                removeHub(hub, onHubEvicted);
+                continue;
+            }
+
+            StringIntMap devices = hubDevices[hub];
+            idleDevices.clear();
+            for (int slot = 0; slot < devices.capacity(); slot++) {
+                String deviceId = devices.keyAt(slot);
+                if (deviceId != null && deviceLastSeen[devices.valueAt(slot)] < deviceSeenBefore) {
+                    idleDevices.add(deviceId);
+                }
+            }
+            if (idleDevices.size() == devices.size()) {
+                // хаб без активных устройств удаляется целиком, чтобы его последний снапшот был сохранен
+                removeHub(hub, onHubEvicted);
+                continue;
+            }
+            for (String deviceId : idleDevices) {
+                releaseDevice(devices.remove(deviceId));
+            }
+            if (!idleDevices.isEmpty()) {
+                hubVersions[hub] = ++version;
+            }
+        }
+
+        if (hubCount > policy.getMaxHubs() || deviceCount > policy.getMaxDevices()) {
+            evictLeastRecentlySeen((int) (policy.getMaxHubs() * 0.9), (int) (policy.getMaxDevices() * 0.9),
+                    onHubEvicted);
+        }
+    }
+
+    @Override
+    public void clear() {
+        hubIndex.clear();
+        Arrays.fill(hubIds, 0, hubSlots, null);
+        Arrays.fill(hubDevices, 0, hubSlots, null);
+        Arrays.fill(hubSnapshots, 0, hubSlots, null);
+        hubSlots = 0;
+        hubCount = 0;
+        freeHubCount = 0;
+        deviceSlots = 0;
+        deviceCount = 0;
+        freeDeviceCount = 0;
+    }
+
+    private void evictLeastRecentlySeen(int hubTarget, int deviceTarget, Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        Integer[] byLastSeen = new Integer[hubCount];
+        int live = 0;
+        for (int hub = 0; hub < hubSlots; hub++) {
+            if (hubIds[hub] != null) {
+                byLastSeen[live++] = hub;
+            }
+        }
+        long[] lastSeen = hubLastSeen;
+        Arrays.sort(byLastSeen, 0, live, (a, b) -> Long.compare(lastSeen[a], lastSeen[b]));
+
+        for (int i = 0; i < live && (hubCount > hubTarget || deviceCount > deviceTarget); i++) {
+            removeHub(byLastSeen[i], onHubEvicted);
+        }
+    }
+
+    private void removeHub(int hub, Consumer<SensorsSnapshotAvro> onHubEvicted) {
+        onHubEvicted.accept(getSnapshot(hubIds[hub]));
+        StringIntMap devices = hubDevices[hub];
+        for (int slot = 0; slot < devices.capacity(); slot++) {
+            if (devices.keyAt(slot) != null) {
+                releaseDevice(devices.valueAt(slot));
+            }
+        }
+        releaseHub(hub);
+    }
+
+    private void releaseHub(int hub) {
+        hubIndex.remove(hubIds[hub]);
+        hubIds[hub] = null;
+        hubDevices[hub] = null;
+        hubSnapshots[hub] = null;
+        hubCount--;
+        if (freeHubCount == freeHubs.length) {
+            freeHubs = Arrays.copyOf(freeHubs, freeHubs.length * 2);
+        }
+        freeHubs[freeHubCount++] = hub;
+    }
+
+    private void releaseDevice(int device) {
+        deviceCount--;
+        if (freeDeviceCount == freeDevices.length) {
+            freeDevices = Arrays.copyOf(freeDevices, freeDevices.length * 2);
+        }
+        freeDevices[freeDeviceCount++] = device;
+    }
+
+    private int addHub(String hubId) {
+        int hub;
+        if (freeHubCount > 0) {
+            hub = freeHubs[--freeHubCount];
+        } else {
+            if (hubSlots == hubIds.length) {
+                int capacity = hubIds.length * 2;
+                hubIds = Arrays.copyOf(hubIds, capacity);
+                hubTimestamps = Arrays.copyOf(hubTimestamps, capacity);
+                hubLastSeen = Arrays.copyOf(hubLastSeen, capacity);
+                hubDevices = Arrays.copyOf(hubDevices, capacity);
+                hubVersions = Arrays.copyOf(hubVersions, capacity);
+                hubSnapshots = Arrays.copyOf(hubSnapshots, capacity);
+                hubSnapshotVersions = Arrays.copyOf(hubSnapshotVersions, capacity);
+            }
+            hub = hubSlots++;
+        }
+        hubCount++;
+        hubIds[hub] = hubId;
+        hubTimestamps[hub] = 0L;
+        hubDevices[hub] = new StringIntMap(8);
+        hubVersions[hub] = ++version;
+        hubIndex.put(hubId, hub);
+        return hub;
+    }
+
+    private int addDevice() {
+        deviceCount++;
+        if (freeDeviceCount > 0) {
+            return freeDevices[--freeDeviceCount];
+        }
+        if (deviceSlots == deviceTimestamps.length) {
+            int capacity = deviceTimestamps.length * 2;
+            deviceTimestamps = Arrays.copyOf(deviceTimestamps, capacity);
+            deviceLastSeen = Arrays.copyOf(deviceLastSeen, capacity);
+            deviceVersions = Arrays.copyOf(deviceVersions, capacity);
+            deviceTypes = Arrays.copyOf(deviceTypes, capacity);
+            deviceFields = Arrays.copyOf(deviceFields, capacity * FIELDS);
+        }
+        return deviceSlots++;
+    }
+
+    private boolean sameData(int device, byte type) {
+        if (deviceTypes[device] != type) {
+            return false;
+        }
+        int offset = device * FIELDS;
+        return deviceFields[offset] == incoming[0]
+                && deviceFields[offset + 1] == incoming[1]
+                && deviceFields[offset + 2] == incoming[2];
+    }
+
+    private static byte decode(Object payload, int[] fields) {
+        fields[0] = 0;
+        fields[1] = 0;
+        fields[2] = 0;
+        if (payload instanceof ClimateSensorAvro climate) {
+            fields[0] = climate.getTemperatureC();
+            fields[1] = climate.getHumidity();
+            fields[2] = climate.getCo2Level();
+            return CLIMATE;
+        } else if (payload instanceof LightSensorAvro light) {
+            fields[0] = light.getLinkQuality();
+            fields[1] = light.getLuminosity();
+            return LIGHT;
+        } else if (payload instanceof MotionSensorAvro motion) {
+            fields[0] = motion.getLinkQuality();
+            fields[1] = motion.getMotion() ? 1 : 0;
+            fields[2] = motion.getVoltage();
+            return MOTION;
+        } else if (payload instanceof SwitchSensorAvro sensorSwitch) {
+            fields[0] = sensorSwitch.getState() ? 1 : 0;
+            return SWITCH;
+        } else if (payload instanceof TemperatureSensorAvro temperature) {
+            fields[0] = temperature.getTemperatureC();
+            fields[1] = temperature.getTemperatureF();
+            return TEMPERATURE;
+        }
+        return 0;
+    }
+
+    private Object encode(int device) {
+        int offset = device * FIELDS;
+        return switch (deviceTypes[device]) {
+            case CLIMATE -> new ClimateSensorAvro(
+                    deviceFields[offset], deviceFields[offset + 1], deviceFields[offset + 2]);
+            case LIGHT -> new LightSensorAvro(deviceFields[offset], deviceFields[offset + 1]);
+            case MOTION -> new MotionSensorAvro(
+                    deviceFields[offset], deviceFields[offset + 1] == 1, deviceFields[offset + 2]);
+            case SWITCH -> new SwitchSensorAvro(deviceFields[offset] == 1);
+            case TEMPERATURE -> new TemperatureSensorAvro(deviceFields[offset], deviceFields[offset + 1]);
+            default -> throw new IllegalStateException("Unknown sensor type code: " + deviceTypes[device]);
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.state;
+
+import ru.yandex.practicum.config.EvictionProperties;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.function.Consumer;
+
+/**
+ * Хранилище последних показаний датчиков, сгруппированных по хабам.
+ * Реализации не потокобезопасны: обновление выполняется из цикла опроса Kafka.
+ */
+public interface SensorStateStore {
+
+    /**
+     * Применяет событие к состоянию хаба.
+     *
+     * @return true, если состояние изменилось и снапшот хаба нужно отправить
+     */
+    boolean update(SensorEventAvro event);
+
+    /**
+     * Пока состояние хаба не меняется (событием или удалением устройств), возвращается тот же объект.
+     */
+    SensorsSnapshotAvro getSnapshot(String hubId);
+
+    int getHubCount();
+
+    int getDeviceCount();
+
+    /**
+     * Удаляет устройства и хабы, не обновлявшиеся дольше TTL, а затем, если превышены лимиты,
+     * вытесняет хабы в порядке давности последнего обновления. Хаб, у которого не осталось
+     * активных устройств, удаляется так же, как хаб с истекшим TTL.
+     *
+     * @param onHubEvicted получает последний снапшот каждого удаленного хаба
+     */
+    void evict(EvictionProperties policy, long nowMillis, Consumer<SensorsSnapshotAvro> onHubEvicted);
+
+    void clear();
+}
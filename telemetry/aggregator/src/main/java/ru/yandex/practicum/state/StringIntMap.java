@@ -0,0 +1,120 @@
+package ru.yandex.practicum.state;
+
+import java.util.Arrays;
+
+/**
+ * Открытая адресация String -> int без упаковки значений.
+ * Удаление выполняется сдвигом следующих элементов цепочки, без "надгробий".
+ */
+final class StringIntMap {
+
+    static final int MISSING = -1;
+
+    private String[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    StringIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int get(String key) {
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void put(String key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    int remove(String key) {
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private int slot(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void shiftBack(int gap) {
+        int next = (gap + 1) & mask;
+        while (keys[next] != null) {
+            int ideal = slot(keys[next]);
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = null;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
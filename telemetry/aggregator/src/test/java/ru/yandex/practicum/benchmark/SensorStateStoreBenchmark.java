@@ -0,0 +1,131 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.state.MapSensorStateStore;
+import ru.yandex.practicum.state.PrimitiveSensorStateStore;
+import ru.yandex.practicum.state.SensorStateStore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скорость обновления и занимаемая память хранилищ состояния (aggregator.state.backend):
+ * map - MapSensorStateStore, primitive - PrimitiveSensorStateStore. Хранилище заполняется devices
+ * устройствами по 20 на хаб, затем события идут по случайным устройствам с растущим временем
+ * и меняющимися показаниями. update - только применение события, updateAndSnapshot - как в
+ * SnapshotAggregationService: при изменении состояния сразу собирается снапшот хаба.
+ * Размер графа объектов хранилища после заполнения печатается при подготовке каждой комбинации
+ * параметров (JOL), выделение памяти на событие - профилировщиком gc (gc.alloc.rate.norm).
+ * Запуск: main этого класса из IDE или
+ * mvn -pl telemetry/aggregator test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.SensorStateStoreBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+public class SensorStateStoreBenchmark {
+
+    private static final int DEVICES_PER_HUB = 20;
+    private static final int EVENTS = 1 << 16;
+
+    @Param({"map", "primitive"})
+    private String store;
+
+    @Param({"1000", "10000", "100000"})
+    private int devices;
+
+    private SensorStateStore stateStore;
+    private SensorEventAvro[] events;
+    private int next;
+    private long clock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stateStore = "map".equals(store) ? new MapSensorStateStore() : new PrimitiveSensorStateStore();
+        Random random = new Random(42);
+        clock = 1_700_000_000_000L;
+
+        for (int device = 0; device < devices; device++) {
+            stateStore.update(event(device, random));
+        }
+        GraphLayout layout = GraphLayout.parseInstance(stateStore);
+        System.out.printf("%nstore=%s devices=%d: %d objects, %d bytes, %.1f bytes/device%n",
+                store, devices, layout.totalCount(), layout.totalSize(), (double) layout.totalSize() / devices);
+
+        events = new SensorEventAvro[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = event(random.nextInt(devices), random);
+        }
+    }
+
+    @Benchmark
+    public boolean update() {
+        return stateStore.update(nextEvent());
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro updateAndSnapshot() {
+        SensorEventAvro event = nextEvent();
+        return stateStore.update(event) ? stateStore.getSnapshot(event.getHubId()) : null;
+    }
+
+    private SensorEventAvro nextEvent() {
+        SensorEventAvro event = events[next];
+        next = next + 1 == EVENTS ? 0 : next + 1;
+        // события повторяются по кругу, время растет, чтобы хранилище не отбрасывало их как устаревшие
+        event.setTimestamp(++clock);
+        return event;
+    }
+
+    private SensorEventAvro event(int device, Random random) {
+        return SensorEventAvro.newBuilder()
+                .setHubId("hub-" + device / DEVICES_PER_HUB)
+                .setId("hub-" + device / DEVICES_PER_HUB + "-sensor-" + device)
+                .setTimestamp(++clock)
+                .setPayload(sensorData(device, random))
+                .build();
+    }
+
+    private static Object sensorData(int device, Random random) {
+        return switch (device % 5) {
+            case 0 -> new ClimateSensorAvro(random.nextInt(40), random.nextInt(100), 400 + random.nextInt(600));
+            case 1 -> new LightSensorAvro(90, random.nextInt(600));
+            case 2 -> new MotionSensorAvro(80, random.nextBoolean(), 3);
+            case 3 -> new SwitchSensorAvro(random.nextBoolean());
+            default -> new TemperatureSensorAvro(random.nextInt(40), 32 + random.nextInt(72));
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorStateStoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.benchmark;
+
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.service.SnapshotMapperService;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Размер снапшота в пачке продюсера и скорость сборки пачки по кодекам сжатия (aggregator.kafka.compression-type).
+ * Пачка собирается тем же MemoryRecordsBuilder, что и в продюсере Kafka, без брокера: batchRecords = 1
+ * соответствует linger.ms = 0 при редких снапшотах, 64 - пачке, накопленной за linger.ms под нагрузкой.
+ * Снапшоты идут по кругу по hubs хабам, у каждого хаба devices устройств с медленно меняющимися показаниями.
+ * Байты на снапшот печатаются при подготовке каждой комбинации параметров, скорость - результат JMH
+ * (снапшотов в секунду = пачек в секунду * batchRecords).
+ * Запуск: main этого класса из IDE или
+ * mvn -pl telemetry/aggregator test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.SnapshotCompressionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotCompressionBenchmark {
+
+    private static final int SNAPSHOTS = 4096;
+
+    @Param({"none", "gzip", "snappy", "lz4", "zstd"})
+    private String codec;
+
+    @Param({"1", "64"})
+    private int batchRecords;
+
+    @Param({"50"})
+    private int hubs;
+
+    @Param({"20"})
+    private int devices;
+
+    private CompressionType compressionType;
+    private byte[][] snapshots;
+    private ByteBuffer buffer;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compressionType = CompressionType.forName(codec);
+        snapshots = generateSnapshots();
+        buffer = ByteBuffer.allocate(4 * 1024 * 1024);
+
+        long rawBytes = 0;
+        long batchBytes = 0;
+        int batches = SNAPSHOTS / batchRecords;
+        for (int i = 0; i < batches; i++) {
+            MemoryRecords records = buildBatch();
+            batchBytes += records.sizeInBytes();
+        }
+        for (byte[] snapshot : snapshots) {
+            rawBytes += snapshot.length;
+        }
+        System.out.printf("%ncodec=%s batchRecords=%d: avro %.1f bytes/snapshot, in batch %.1f bytes/snapshot%n",
+                codec, batchRecords, (double) rawBytes / SNAPSHOTS, (double) batchBytes / (batches * batchRecords));
+    }
+
+    @Benchmark
+    public MemoryRecords produceBatch() {
+        return buildBatch();
+    }
+
+    private MemoryRecords buildBatch() {
+        buffer.clear();
+        MemoryRecordsBuilder builder = MemoryRecords.builder(buffer, compressionType, TimestampType.CREATE_TIME, 0L);
+        for (int i = 0; i < batchRecords; i++) {
+            builder.append(i, null, snapshots[next]);
+            next = next + 1 == SNAPSHOTS ? 0 : next + 1;
+        }
+        return builder.build();
+    }
+
+    private byte[][] generateSnapshots() {
+        SnapshotMapperService mapper = new SnapshotMapperService();
+        Random random = new Random(42);
+        int[][] readings = new int[hubs][devices];
+        byte[][] result = new byte[SNAPSHOTS][];
+        long timestamp = 1_700_000_000_000L;
+
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            int hub = i % hubs;
+            // в каждом снапшоте меняется одно показание хаба
+            int changed = random.nextInt(devices);
+            readings[hub][changed] += random.nextInt(3) - 1;
+            timestamp += 10;
+
+            Map<String, SensorStateAvro> states = new HashMap<>();
+            for (int device = 0; device < devices; device++) {
+                states.put("hub-" + hub + "-sensor-" + device, SensorStateAvro.newBuilder()
+                        .setTimestamp(timestamp - device * 1000L)
+                        .setData(sensorData(device, readings[hub][device]))
+                        .build());
+            }
+            result[i] = mapper.snapshotToAvroBytes(SensorsSnapshotAvro.newBuilder()
+                    .setHubId("hub-" + hub)
+                    .setTimestamp(timestamp)
+                    .setSensorsState(states)
+                    .build());
+        }
+        return result;
+    }
+
+    private static Object sensorData(int device, int drift) {
+        return switch (device % 5) {
+            case 0 -> new ClimateSensorAvro(21 + drift, 40 + drift, 600 + drift);
+            case 1 -> new LightSensorAvro(90, 300 + drift);
+            case 2 -> new MotionSensorAvro(80, drift % 2 == 0, 3);
+            case 3 -> new SwitchSensorAvro(drift % 2 == 0);
+            default -> new TemperatureSensorAvro(20 + drift, 68 + drift);
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnapshotCompressionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
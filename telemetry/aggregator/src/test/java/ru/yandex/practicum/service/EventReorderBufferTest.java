@@ -0,0 +1,84 @@
+package ru.yandex.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.config.ReorderProperties;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventReorderBufferTest {
+
+    private static final long LATENESS_MS = 50;
+
+    private final List<Long> released = new ArrayList<>();
+    private final EventReorderBuffer buffer = new EventReorderBuffer(properties());
+
+    @Test
+    void releasesEventsInEventTimeOrder() throws InterruptedException {
+        buffer.add(event(1030), this::sink);
+        buffer.add(event(1010), this::sink);
+        buffer.add(event(1020), this::sink);
+
+        Thread.sleep(LATENESS_MS + 10);
+        buffer.flushExpired(this::sink);
+
+        assertThat(released).containsExactly(1010L, 1020L, 1030L);
+        assertThat(buffer.getBufferedCount()).isZero();
+    }
+
+    @Test
+    void keepsReleasedBoundAfterBufferOfHubDrains() throws InterruptedException {
+        buffer.add(event(1000), this::sink);
+        Thread.sleep(LATENESS_MS + 10);
+        buffer.flushExpired(this::sink);
+        assertThat(released).containsExactly(1000L);
+
+        // буфер хаба пуст, но событие старше выпущенного все равно опоздало
+        buffer.add(event(900), this::sink);
+        buffer.flushExpired(this::sink);
+
+        assertThat(buffer.getDroppedLateCount()).isEqualTo(1);
+        assertThat(buffer.getBufferedCount()).isZero();
+        assertThat(buffer.getHubCount()).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsReleasedBoundOnlyAfterHubTtl() throws InterruptedException {
+        buffer.add(event(1000), this::sink);
+        Thread.sleep(LATENESS_MS + 10);
+        buffer.flushExpired(this::sink);
+
+        buffer.evictIdle(60_000);
+        assertThat(buffer.getHubCount()).isEqualTo(1);
+
+        buffer.evictIdle(0);
+        assertThat(buffer.getHubCount()).isZero();
+
+        buffer.add(event(900), this::sink);
+        assertThat(buffer.getDroppedLateCount()).isZero();
+        assertThat(buffer.getBufferedCount()).isEqualTo(1);
+    }
+
+    private void sink(SensorEventAvro event) {
+        released.add(event.getTimestamp());
+    }
+
+    private static SensorEventAvro event(long timestamp) {
+        return SensorEventAvro.newBuilder()
+                .setHubId("hub-1")
+                .setId("switch-1")
+                .setTimestamp(timestamp)
+                .setPayload(new SwitchSensorAvro(true))
+                .build();
+    }
+
+    private static ReorderProperties properties() {
+        ReorderProperties properties = new ReorderProperties();
+        properties.setAllowedLatenessMs(LATENESS_MS);
+        return properties;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.config.EvictionProperties;
+import ru.yandex.practicum.config.SnapshotSubscriptionProperties;
+import ru.yandex.practicum.grpc.SnapshotProtoMapper;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.state.MapSensorStateStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotAggregationServiceTest {
+
+    private final EvictionProperties evictionProperties = new EvictionProperties();
+    private final SnapshotPublisher publisher =
+            new SnapshotPublisher(new SnapshotSubscriptionProperties(), new SnapshotProtoMapper());
+    private final SnapshotAggregationService service =
+            new SnapshotAggregationService(new MapSensorStateStore(), evictionProperties, publisher);
+
+    @Test
+    void latestSnapshotDropsEvictedDevices() throws InterruptedException {
+        evictionProperties.setDeviceTtlMs(50);
+        service.updateState(event("hub-1", "switch-1"));
+        Thread.sleep(100);
+        service.updateState(event("hub-1", "switch-2"));
+        assertThat(publisher.getLatest("hub-1")).get()
+                .satisfies(snapshot -> assertThat(snapshot.getSensorsState()).containsOnlyKeys("switch-1", "switch-2"));
+
+        service.evictIdleState(snapshot -> { });
+
+        assertThat(publisher.getLatest("hub-1")).get()
+                .satisfies(snapshot -> assertThat(snapshot.getSensorsState()).containsOnlyKeys("switch-2"));
+    }
+
+    @Test
+    void latestSnapshotIsKeptWhenSubscriptionsAreDisabled() {
+        SnapshotSubscriptionProperties properties = new SnapshotSubscriptionProperties();
+        properties.setEnabled(false);
+        SnapshotPublisher disabledPublisher = new SnapshotPublisher(properties, new SnapshotProtoMapper());
+        SnapshotAggregationService disabledService =
+                new SnapshotAggregationService(new MapSensorStateStore(), evictionProperties, disabledPublisher);
+
+        disabledService.updateState(event("hub-1", "switch-1"));
+
+        assertThat(disabledPublisher.getLatest("hub-1")).isPresent();
+    }
+
+    private static SensorEventAvro event(String hubId, String deviceId) {
+        return SensorEventAvro.newBuilder()
+                .setHubId(hubId)
+                .setId(deviceId)
+                .setTimestamp(System.currentTimeMillis())
+                .setPayload(new SwitchSensorAvro(true))
+                .build();
+    }
+}
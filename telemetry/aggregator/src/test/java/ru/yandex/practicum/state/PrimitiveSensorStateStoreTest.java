@@ -0,0 +1,154 @@
+package ru.yandex.practicum.state;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.config.EvictionProperties;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrimitiveSensorStateStoreTest {
+
+    private static final int HUBS = 20;
+    private static final int DEVICES_PER_HUB = 30;
+
+    private final MapSensorStateStore reference = new MapSensorStateStore();
+    private final PrimitiveSensorStateStore store = new PrimitiveSensorStateStore();
+
+    @Test
+    void producesSameSnapshotsAsMapStore() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            SensorEventAvro event = randomEvent(random);
+
+            assertThat(store.update(event))
+                    .as("update result for event %d: %s", i, event)
+                    .isEqualTo(reference.update(event));
+            if (random.nextInt(10) == 0) {
+                assertThat(store.getSnapshot(event.getHubId())).isEqualTo(reference.getSnapshot(event.getHubId()));
+            }
+        }
+
+        assertThat(store.getHubCount()).isEqualTo(reference.getHubCount());
+        assertThat(store.getDeviceCount()).isEqualTo(reference.getDeviceCount());
+        for (int hub = 0; hub < HUBS; hub++) {
+            assertThat(store.getSnapshot(hubId(hub))).isEqualTo(reference.getSnapshot(hubId(hub)));
+        }
+        assertThat(store.getSnapshot("unknown-hub")).isNull();
+    }
+
+    @Test
+    void evictsSameHubsAsMapStore() {
+        Random random = new Random(11);
+        for (int i = 0; i < 5_000; i++) {
+            SensorEventAvro event = randomEvent(random);
+            store.update(event);
+            reference.update(event);
+        }
+
+        EvictionProperties policy = new EvictionProperties();
+        long later = System.currentTimeMillis() + policy.getHubTtlMs() + 1;
+        Map<String, SensorsSnapshotAvro> evicted = new HashMap<>();
+        Map<String, SensorsSnapshotAvro> evictedByReference = new HashMap<>();
+
+        store.evict(policy, later, snapshot -> evicted.put(snapshot.getHubId(), snapshot));
+        reference.evict(policy, later, snapshot -> evictedByReference.put(snapshot.getHubId(), snapshot));
+
+        assertThat(evicted).hasSize(HUBS).isEqualTo(evictedByReference);
+        assertThat(store.getHubCount()).isZero();
+        assertThat(store.getDeviceCount()).isZero();
+    }
+
+    @Test
+    void reportsHubWhoseDevicesAllExpired() {
+        store.update(event("hub-1", "switch-1", 100, new SwitchSensorAvro(true)));
+        reference.update(event("hub-1", "switch-1", 100, new SwitchSensorAvro(true)));
+
+        EvictionProperties policy = new EvictionProperties();
+        policy.setDeviceTtlMs(0);
+        long later = System.currentTimeMillis() + 1;
+        Map<String, SensorsSnapshotAvro> evicted = new HashMap<>();
+        Map<String, SensorsSnapshotAvro> evictedByReference = new HashMap<>();
+
+        store.evict(policy, later, snapshot -> evicted.put(snapshot.getHubId(), snapshot));
+        reference.evict(policy, later, snapshot -> evictedByReference.put(snapshot.getHubId(), snapshot));
+
+        // в снапшоте остаются последние показания, а не пустое состояние после удаления устройств
+        assertThat(evicted).containsOnlyKeys("hub-1").isEqualTo(evictedByReference);
+        assertThat(evicted.get("hub-1").getSensorsState()).containsOnlyKeys("switch-1");
+        assertThat(store.getHubCount()).isZero();
+        assertThat(reference.getHubCount()).isZero();
+    }
+
+    @Test
+    void reusesSnapshotUntilStateChanges() {
+        store.update(event("hub-1", "switch-1", 100, new SwitchSensorAvro(true)));
+        store.update(event("hub-1", "light-1", 100, new LightSensorAvro(80, 300)));
+
+        SensorsSnapshotAvro first = store.getSnapshot("hub-1");
+        assertThat(store.getSnapshot("hub-1")).isSameAs(first);
+
+        store.update(event("hub-1", "light-1", 200, new LightSensorAvro(80, 450)));
+        SensorsSnapshotAvro second = store.getSnapshot("hub-1");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTimestamp()).isEqualTo(200);
+        // неизменившееся устройство берется из прошлого снапшота, изменившееся кодируется заново
+        assertThat(second.getSensorsState().get("switch-1")).isSameAs(first.getSensorsState().get("switch-1"));
+        assertThat(second.getSensorsState().get("light-1").getData()).isEqualTo(new LightSensorAvro(80, 450));
+        // прошлый снапшот мог уйти другим потокам и не должен меняться
+        assertThat(first.getSensorsState().get("light-1").getData()).isEqualTo(new LightSensorAvro(80, 300));
+    }
+
+    @Test
+    void ignoresOlderAndDuplicateEvents() {
+        assertThat(store.update(event("hub-1", "t-1", 200, new TemperatureSensorAvro(20, 68)))).isTrue();
+        assertThat(store.update(event("hub-1", "t-1", 100, new TemperatureSensorAvro(25, 77)))).isFalse();
+        assertThat(store.update(event("hub-1", "t-1", 200, new TemperatureSensorAvro(20, 68)))).isFalse();
+        assertThat(store.update(event("hub-1", "t-1", 200, new TemperatureSensorAvro(21, 70)))).isTrue();
+
+        SensorStateAvro state = store.getSnapshot("hub-1").getSensorsState().get("t-1");
+        assertThat(state.getTimestamp()).isEqualTo(200);
+        assertThat(state.getData()).isEqualTo(new TemperatureSensorAvro(21, 70));
+    }
+
+    private static SensorEventAvro randomEvent(Random random) {
+        int hub = random.nextInt(HUBS);
+        int device = random.nextInt(DEVICES_PER_HUB);
+        // узкие диапазоны дают повторы, равные таймстемпы и события не по порядку
+        long timestamp = 1_000 + random.nextInt(50);
+        int value = random.nextInt(3);
+        Object payload = switch (device % 5) {
+            case 0 -> new ClimateSensorAvro(value, value + 40, value * 100);
+            case 1 -> new LightSensorAvro(90, value * 10);
+            case 2 -> new MotionSensorAvro(90, value == 1, 220 + value);
+            case 3 -> new SwitchSensorAvro(value == 1);
+            default -> new TemperatureSensorAvro(value, value * 2 + 32);
+        };
+        return event(hubId(hub), "device-" + device, timestamp, payload);
+    }
+
+    private static SensorEventAvro event(String hubId, String deviceId, long timestamp, Object payload) {
+        return SensorEventAvro.newBuilder()
+                .setHubId(hubId)
+                .setId(deviceId)
+                .setTimestamp(timestamp)
+                .setPayload(payload)
+                .build();
+    }
+
+    private static String hubId(int hub) {
+        return "hub-" + hub;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringIntMapTest {
+
+    @Test
+    void growsPastInitialCapacityAndKeepsAllKeys() {
+        StringIntMap map = new StringIntMap(2);
+        int initialCapacity = map.capacity();
+
+        for (int i = 0; i < 10_000; i++) {
+            map.put("device-" + i, i);
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        assertThat(map.capacity()).isGreaterThan(initialCapacity);
+        // коэффициент заполнения не выше 1/2
+        assertThat(map.capacity()).isGreaterThanOrEqualTo(map.size() * 2);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(map.get("device-" + i)).isEqualTo(i);
+        }
+        assertThat(map.get("device-10000")).isEqualTo(StringIntMap.MISSING);
+    }
+
+    @Test
+    void putOverwritesExistingValue() {
+        StringIntMap map = new StringIntMap(4);
+        map.put("hub", 1);
+        map.put("hub", 2);
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get("hub")).isEqualTo(2);
+    }
+
+    @Test
+    void resolvesKeysWithEqualHashCodes() {
+        // "Aa" и "BB" имеют одинаковый hashCode, поэтому все их сочетания попадают в одну цепочку
+        List<String> colliding = List.of("AaAa", "AaBB", "BBAa", "BBBB");
+        assertThat(colliding).extracting(String::hashCode).containsOnly("AaAa".hashCode());
+
+        StringIntMap map = new StringIntMap(4);
+        for (int i = 0; i < colliding.size(); i++) {
+            map.put(colliding.get(i), i);
+        }
+
+        for (int i = 0; i < colliding.size(); i++) {
+            assertThat(map.get(colliding.get(i))).isEqualTo(i);
+        }
+        assertThat(map.get("AaAaAa")).isEqualTo(StringIntMap.MISSING);
+    }
+
+    @Test
+    void removeFromMiddleOfChainKeepsFollowingKeysReachable() {
+        List<String> colliding = List.of("AaAa", "AaBB", "BBAa", "BBBB");
+        StringIntMap map = new StringIntMap(4);
+        for (int i = 0; i < colliding.size(); i++) {
+            map.put(colliding.get(i), i);
+        }
+
+        assertThat(map.remove("AaBB")).isEqualTo(1);
+        assertThat(map.remove("AaBB")).isEqualTo(StringIntMap.MISSING);
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get("AaAa")).isEqualTo(0);
+        assertThat(map.get("BBAa")).isEqualTo(2);
+        assertThat(map.get("BBBB")).isEqualTo(3);
+        assertThat(map.get("AaBB")).isEqualTo(StringIntMap.MISSING);
+    }
+
+    @Test
+    void behavesLikeHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(42);
+        StringIntMap map = new StringIntMap(8);
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            String key = "k" + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(removed == null ? StringIntMap.MISSING : removed);
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<String, Integer> actual = new HashMap<>();
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.keyAt(slot) != null) {
+                actual.put(map.keyAt(slot), map.valueAt(slot));
+            }
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void clearRemovesAllKeys() {
+        StringIntMap map = new StringIntMap(4);
+        map.put("a", 1);
+        map.put("b", 2);
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get("a")).isEqualTo(StringIntMap.MISSING);
+        map.put("a", 3);
+        assertThat(map.get("a")).isEqualTo(3);
+    }
+}
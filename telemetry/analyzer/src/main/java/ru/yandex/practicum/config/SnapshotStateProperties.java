@@ -0,0 +1,17 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("analyzer.snapshot-state")
+public class SnapshotStateProperties {
+    // false - каждый снапшот обрабатывается целиком, как будто изменились все датчики
+    private boolean enabled = true;
+    // сколько хабов держать в памяти; при превышении вытесняются давно не присылавшие снапшоты
+    private int maxHubs = 100_000;
+}
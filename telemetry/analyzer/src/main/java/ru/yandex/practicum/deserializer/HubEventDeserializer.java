@@ -0,0 +1,69 @@
+package ru.yandex.practicum.deserializer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
+import ru.yandex.practicum.serialization.AvroSchemaHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Читает события хабов, разрешая схему записи в текущую схему HubEventAvro. Схема записи
+ * выбирается по заголовку {@link AvroSchemaHeaders#SCHEMA_FINGERPRINT}; сообщения без заголовка
+ * записаны коллектором до его появления, то есть первой версией схемы (avro/HubEventAvro-v1.avsc).
+ * Новые поля условий при чтении старых сообщений получают значения по умолчанию.
+ */
+@Component
+public class HubEventDeserializer {
+
+    private static final String LEGACY_SCHEMA = "/avro/HubEventAvro-v1.avsc";
+
+    private final DecoderFactory decoderFactory = DecoderFactory.get();
+    private final Map<Long, Schema> writerSchemas;
+    private final Schema legacySchema;
+
+    public HubEventDeserializer() {
+        Schema current = HubEventAvro.getClassSchema();
+        this.legacySchema = loadSchema(LEGACY_SCHEMA);
+        this.writerSchemas = Map.of(
+                SchemaNormalization.parsingFingerprint64(current), current,
+                SchemaNormalization.parsingFingerprint64(legacySchema), legacySchema);
+    }
+
+    public HubEventAvro deserialize(byte[] data, byte[] fingerprintHeader) throws IOException {
+        Schema writerSchema = writerSchema(fingerprintHeader);
+        BinaryDecoder decoder = decoderFactory.binaryDecoder(data, null);
+        return new SpecificDatumReader<HubEventAvro>(writerSchema, HubEventAvro.getClassSchema()).read(null, decoder);
+    }
+
+    private Schema writerSchema(byte[] fingerprintHeader) throws IOException {
+        if (fingerprintHeader == null) {
+            return legacySchema;
+        }
+        Long fingerprint = AvroSchemaHeaders.decodeFingerprint(fingerprintHeader);
+        Schema schema = fingerprint == null ? null : writerSchemas.get(fingerprint);
+        if (schema == null) {
+            // событие записано более новой схемой: анализатор нужно обновить раньше коллектора
+            throw new IOException("Unknown hub event schema fingerprint: " + fingerprint);
+        }
+        return schema;
+    }
+
+    private static Schema loadSchema(String resource) {
+        try (InputStream in = HubEventDeserializer.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema resource not found: " + resource);
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
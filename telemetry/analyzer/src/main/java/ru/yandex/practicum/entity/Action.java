@@ -1,6 +1,7 @@
 package ru.yandex.practicum.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -8,6 +9,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import ru.yandex.practicum.entity.converter.ActionTypeConverter;
 
 @Entity
 @Table(name = "actions")
@@ -18,8 +20,9 @@ public class Action {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "type")
-    private String type;
+    @Column(name = "type", nullable = false, columnDefinition = "SMALLINT")
+    @Convert(converter = ActionTypeConverter.class)
+    private ActionType type;
 
     @Column(name = "value")
     private Integer value;
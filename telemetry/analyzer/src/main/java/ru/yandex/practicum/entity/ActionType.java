@@ -0,0 +1,15 @@
+package ru.yandex.practicum.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ActionType implements CodedEnum {
+    ACTIVATE((short) 1),
+    DEACTIVATE((short) 2),
+    INVERSE((short) 3),
+    SET_VALUE((short) 4);
+
+    private final short code;
+}
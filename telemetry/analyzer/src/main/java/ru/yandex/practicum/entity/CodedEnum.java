@@ -0,0 +1,9 @@
+package ru.yandex.practicum.entity;
+
+/**
+ * Перечисление, которое хранится в БД в виде короткого числового кода.
+ * Коды фиксированы и не зависят от порядка констант, поэтому их нельзя менять после выката.
+ */
+public interface CodedEnum {
+    short getCode();
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.entity;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -8,6 +9,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import ru.yandex.practicum.entity.converter.ConditionOperationConverter;
+import ru.yandex.practicum.entity.converter.ConditionTypeConverter;
 
 @Entity
 @Table(name = "conditions")
@@ -18,12 +21,23 @@ public class Condition {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "type")
-    private String type;
+    @Column(name = "type", nullable = false, columnDefinition = "SMALLINT")
+    @Convert(converter = ConditionTypeConverter.class)
+    private ConditionType type;
 
-    @Column(name = "operation")
-    private String operation;
+    @Column(name = "operation", nullable = false, columnDefinition = "SMALLINT")
+    @Convert(converter = ConditionOperationConverter.class)
+    private ConditionOperation operation;
 
     @Column(name = "value")
     private Integer value;
+
+    @Column(name = "upper_value")
+    private Integer upperValue;
+
+    @Column(name = "hysteresis")
+    private Integer hysteresis;
+
+    @Column(name = "held_for_seconds")
+    private Integer heldForSeconds;
 }
\ No newline at end of file
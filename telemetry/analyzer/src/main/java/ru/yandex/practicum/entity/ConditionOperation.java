@@ -0,0 +1,15 @@
+package ru.yandex.practicum.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ConditionOperation implements CodedEnum {
+    EQUALS((short) 1),
+    GREATER_THAN((short) 2),
+    LOWER_THAN((short) 3),
+    BETWEEN((short) 4);
+
+    private final short code;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ConditionType implements CodedEnum {
+    MOTION((short) 1),
+    LUMINOSITY((short) 2),
+    SWITCH((short) 3),
+    TEMPERATURE((short) 4),
+    CO2LEVEL((short) 5),
+    HUMIDITY((short) 6);
+
+    private final short code;
+}
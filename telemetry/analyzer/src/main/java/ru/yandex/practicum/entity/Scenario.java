@@ -9,12 +9,15 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import java.util.List;
 
 @Entity
-@Table(name = "scenarios")
+@Table(name = "scenarios", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_scenarios_hub_id_name", columnNames = {"hub_id", "name"})
+})
 @Getter
 @Setter
 public class Scenario {
@@ -3,6 +3,7 @@ package ru.yandex.practicum.entity;
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
@@ -11,7 +12,9 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "scenario_actions")
+@Table(name = "scenario_actions", indexes = {
+        @Index(name = "idx_scenario_actions_sensor_id", columnList = "sensor_id")
+})
 @Getter
 @Setter
 public class ScenarioAction {
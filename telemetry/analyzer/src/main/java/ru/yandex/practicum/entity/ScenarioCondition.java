@@ -3,6 +3,7 @@ package ru.yandex.practicum.entity;
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
@@ -11,7 +12,9 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "scenario_conditions")
+@Table(name = "scenario_conditions", indexes = {
+        @Index(name = "idx_scenario_conditions_sensor_id", columnList = "sensor_id")
+})
 @Getter
 @Setter
 public class ScenarioCondition {
@@ -33,11 +36,11 @@ public class ScenarioCondition {
     @JoinColumn(name = "condition_id")
     private Condition condition;
 
-    public String getType() {
+    public ConditionType getType() {
         return condition != null ? condition.getType() : null;
     }
 
-    public String getOperation() {
+    public ConditionOperation getOperation() {
         return condition != null ? condition.getOperation() : null;
     }
 
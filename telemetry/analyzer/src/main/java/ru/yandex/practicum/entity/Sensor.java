@@ -3,12 +3,15 @@ package ru.yandex.practicum.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "sensors")
+@Table(name = "sensors", indexes = {
+        @Index(name = "idx_sensors_hub_id", columnList = "hub_id")
+})
 @Getter
 @Setter
 public class Sensor {
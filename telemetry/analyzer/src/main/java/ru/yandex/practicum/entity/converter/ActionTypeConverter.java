@@ -0,0 +1,11 @@
+package ru.yandex.practicum.entity.converter;
+
+import jakarta.persistence.Converter;
+import ru.yandex.practicum.entity.ActionType;
+
+@Converter
+public class ActionTypeConverter extends CodedEnumConverter<ActionType> {
+    public ActionTypeConverter() {
+        super(ActionType.class);
+    }
+}
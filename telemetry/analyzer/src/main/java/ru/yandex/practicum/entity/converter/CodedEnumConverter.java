@@ -0,0 +1,49 @@
+package ru.yandex.practicum.entity.converter;
+
+import jakarta.persistence.AttributeConverter;
+import ru.yandex.practicum.entity.CodedEnum;
+
+import java.lang.reflect.Array;
+
+/**
+ * Базовый конвертер enum <-> SMALLINT. Обратное преобразование идет через массив,
+ * индексированный кодом, без перебора констант.
+ */
+public abstract class CodedEnumConverter<E extends Enum<E> & CodedEnum> implements AttributeConverter<E, Short> {
+
+    private final Class<E> type;
+    private final E[] byCode;
+
+    @SuppressWarnings("unchecked")
+    protected CodedEnumConverter(Class<E> type) {
+        this.type = type;
+        E[] constants = type.getEnumConstants();
+        int maxCode = 0;
+        for (E constant : constants) {
+            maxCode = Math.max(maxCode, constant.getCode());
+        }
+        this.byCode = (E[]) Array.newInstance(type, maxCode + 1);
+        for (E constant : constants) {
+            if (byCode[constant.getCode()] != null) {
+                throw new IllegalStateException("Duplicate code " + constant.getCode() + " in " + type.getSimpleName());
+            }
+            byCode[constant.getCode()] = constant;
+        }
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(E attribute) {
+        return attribute != null ? attribute.getCode() : null;
+    }
+
+    @Override
+    public E convertToEntityAttribute(Short code) {
+        if (code == null) {
+            return null;
+        }
+        if (code < 0 || code >= byCode.length || byCode[code] == null) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " code: " + code);
+        }
+        return byCode[code];
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.entity.converter;
+
+import jakarta.persistence.Converter;
+import ru.yandex.practicum.entity.ConditionOperation;
+
+@Converter
+public class ConditionOperationConverter extends CodedEnumConverter<ConditionOperation> {
+    public ConditionOperationConverter() {
+        super(ConditionOperation.class);
+    }
+}
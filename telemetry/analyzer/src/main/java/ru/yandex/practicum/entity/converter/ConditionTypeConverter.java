@@ -0,0 +1,11 @@
+package ru.yandex.practicum.entity.converter;
+
+import jakarta.persistence.Converter;
+import ru.yandex.practicum.entity.ConditionType;
+
+@Converter
+public class ConditionTypeConverter extends CodedEnumConverter<ConditionType> {
+    public ConditionTypeConverter() {
+        super(ConditionType.class);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.model;
+
+import ru.yandex.practicum.entity.ActionType;
+
+public record ActionRule(String sensorId, ActionType type, Integer value) {
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.model;
+
+import ru.yandex.practicum.entity.ConditionOperation;
+import ru.yandex.practicum.entity.ConditionType;
+
+public record ConditionRule(Long id,
+                            String sensorId,
+                            ConditionType type,
+                            ConditionOperation operation,
+                            Integer value,
+                            Integer upperValue,
+                            int hysteresis,
+                            int heldForSeconds) {
+
+    /**
+     * Условие с гистерезисом или выдержкой по времени зависит от предыдущих снапшотов хаба.
+     */
+    public boolean isStateful() {
+        return hysteresis > 0 || heldForSeconds > 0;
+    }
+}
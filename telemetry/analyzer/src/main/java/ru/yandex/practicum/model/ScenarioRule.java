@@ -0,0 +1,10 @@
+package ru.yandex.practicum.model;
+
+import java.util.List;
+
+/**
+ * Снимок сценария хаба, отвязанный от персистентного контекста: вычисление условий
+ * и отправка действий работают с ним без открытой транзакции и соединения с БД.
+ */
+public record ScenarioRule(Long id, String name, List<ConditionRule> conditions, List<ActionRule> actions) {
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.model;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.Set;
+
+public record SnapshotChanges(SensorsSnapshotAvro snapshot, Set<String> changedSensors) {
+}
@@ -5,8 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.header.Header;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.config.KafkaConfig;
+import ru.yandex.practicum.serialization.AvroSchemaHeaders;
 import ru.yandex.practicum.service.HubEventService;
 
 import java.time.Duration;
@@ -69,7 +71,8 @@ public class HubEventProcessor implements Runnable {
     private void processHubEvents(ConsumerRecords<String, byte[]> records) {
         for (ConsumerRecord<String, byte[]> record : records) {
             try {
-                hubEventService.processHubEvent(record.value());
+                Header fingerprint = record.headers().lastHeader(AvroSchemaHeaders.SCHEMA_FINGERPRINT);
+                hubEventService.processHubEvent(record.value(), fingerprint == null ? null : fingerprint.value());
                 log.debug("Processed hub event from topic: {}", record.topic());
             } catch (Exception e) {
                 log.error("Error processing hub event", e);
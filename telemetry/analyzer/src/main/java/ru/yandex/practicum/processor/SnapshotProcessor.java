@@ -16,6 +16,7 @@ import ru.yandex.practicum.service.SnapshotAnalysisService;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -73,15 +74,21 @@ public class SnapshotProcessor {
     }
 
     private void processSnapshots(ConsumerRecords<String, byte[]> records) {
+        List<SensorsSnapshotAvro> snapshots = new ArrayList<>(records.count());
         for (ConsumerRecord<String, byte[]> record : records) {
             try {
-                SensorsSnapshotAvro snapshot = deserializeSnapshot(record.value());
-                snapshotAnalysisService.analyzeSnapshot(snapshot);
-                log.debug("Processed snapshot for hub: {}", record.key());
+                snapshots.add(deserializeSnapshot(record.value()));
             } catch (Exception e) {
-                log.error("Error processing snapshot", e);
+                log.error("Error deserializing snapshot for hub: {}", record.key(), e);
             }
         }
+
+        try {
+            snapshotAnalysisService.analyzeSnapshots(snapshots);
+            log.debug("Processed {} snapshots", snapshots.size());
+        } catch (Exception e) {
+            log.error("Error processing snapshots", e);
+        }
     }
 
     private SensorsSnapshotAvro deserializeSnapshot(byte[] data) throws IOException {
@@ -16,9 +16,19 @@ public interface ScenarioRepository extends JpaRepository<Scenario, Long> {
 
     List<Scenario> findByHubId(String hubId);
 
-    @Query("SELECT s FROM Scenario s LEFT JOIN FETCH s.conditions WHERE s.hubId = :hubId")
+    // условия и действия выбираются отдельными запросами, чтобы не получать декартово произведение коллекций;
+    // второй запрос в той же транзакции дозаполняет actions у уже загруженных сценариев
+    @Query("SELECT s FROM Scenario s " +
+            "LEFT JOIN FETCH s.conditions sc " +
+            "LEFT JOIN FETCH sc.sensor " +
+            "LEFT JOIN FETCH sc.condition " +
+            "WHERE s.hubId = :hubId")
     List<Scenario> findByHubIdWithConditions(@Param("hubId") String hubId);
 
-    @Query("SELECT s FROM Scenario s LEFT JOIN FETCH s.actions WHERE s.hubId = :hubId")
+    @Query("SELECT s FROM Scenario s " +
+            "LEFT JOIN FETCH s.actions sa " +
+            "LEFT JOIN FETCH sa.sensor " +
+            "LEFT JOIN FETCH sa.action " +
+            "WHERE s.hubId = :hubId")
     List<Scenario> findByHubIdWithActions(@Param("hubId") String hubId);
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.entity.ConditionOperation;
+import ru.yandex.practicum.entity.ConditionType;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.model.ConditionRule;
+
+import java.util.Arrays;
+
+/**
+ * Пакетное вычисление условий сценариев для всех снапшотов одного poll'а.
+ * Условия раскладываются по типу в примитивные массивы: в каждой группе значения датчиков
+ * извлекаются одним проходом с единственным switch по типу. Любая операция при добавлении
+ * приводится к включающему диапазону [lower, upper] с учетом гистерезиса, поэтому сравнение
+ * выполняется одним плотным циклом без упаковки и ветвления по операции.
+ */
+@Component
+public class ColumnarConditionEvaluator {
+
+    private static final ConditionType[] TYPES = ConditionType.values();
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    public static final class Batch {
+
+        private final Group[] groups = new Group[TYPES.length];
+        private int size;
+
+        private Batch() {
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Добавляет условие, вычисляемое по указанному снапшоту, и возвращает индекс его результата
+         * в массиве, который вернет {@link #evaluate()}. Условие без датчика в снапшоте или
+         * без порогового значения считается невыполненным. Для выполнявшегося ранее ({@code latched})
+         * условия с гистерезисом диапазон расширяется на ширину гистерезиса.
+         */
+        public int add(SensorsSnapshotAvro snapshot, ConditionRule condition, boolean latched) {
+            int slot = size++;
+            if (condition.type() == null || condition.operation() == null || condition.value() == null) {
+                return slot;
+            }
+            if (condition.operation() == ConditionOperation.BETWEEN && condition.upperValue() == null) {
+                return slot;
+            }
+
+            SensorStateAvro state = snapshot.getSensorsState().get(condition.sensorId());
+            if (state == null || state.getData() == null) {
+                return slot;
+            }
+
+            long value = condition.value();
+            long margin = latched ? condition.hysteresis() : 0;
+            long lower;
+            long upper;
+            switch (condition.operation()) {
+                case EQUALS -> {
+                    lower = value - margin;
+                    upper = value + margin;
+                }
+                case GREATER_THAN -> {
+                    lower = value + 1 - margin;
+                    upper = Long.MAX_VALUE;
+                }
+                case LOWER_THAN -> {
+                    lower = Long.MIN_VALUE;
+                    upper = value - 1 + margin;
+                }
+                case BETWEEN -> {
+                    lower = value - margin;
+                    upper = condition.upperValue() + margin;
+                }
+                default -> throw new IllegalStateException("Unexpected operation: " + condition.operation());
+            }
+
+            int key = condition.type().ordinal();
+            Group group = groups[key];
+            if (group == null) {
+                group = new Group();
+                groups[key] = group;
+            }
+            group.add(slot, state.getData(), lower, upper);
+            return slot;
+        }
+
+        public boolean[] evaluate() {
+            boolean[] results = new boolean[size];
+            for (int key = 0; key < groups.length; key++) {
+                Group group = groups[key];
+                if (group == null) {
+                    continue;
+                }
+                group.extract(TYPES[key]);
+                group.compare(results);
+            }
+            return results;
+        }
+    }
+
+    private static final class Group {
+
+        private int[] slots = new int[16];
+        private long[] lowers = new long[16];
+        private long[] uppers = new long[16];
+        private Object[] data = new Object[16];
+        private int[] values;
+        private boolean[] present;
+        private int size;
+
+        void add(int slot, Object sensorData, long lower, long upper) {
+            if (size == slots.length) {
+                int capacity = size << 1;
+                slots = Arrays.copyOf(slots, capacity);
+                lowers = Arrays.copyOf(lowers, capacity);
+                uppers = Arrays.copyOf(uppers, capacity);
+                data = Arrays.copyOf(data, capacity);
+            }
+            slots[size] = slot;
+            lowers[size] = lower;
+            uppers[size] = upper;
+            data[size] = sensorData;
+            size++;
+        }
+
+        void extract(ConditionType type) {
+            values = new int[size];
+            present = new boolean[size];
+            switch (type) {
+                case TEMPERATURE -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof ClimateSensorAvro climate) {
+                            values[i] = climate.getTemperatureC();
+                            present[i] = true;
+                        } else if (data[i] instanceof TemperatureSensorAvro temperature) {
+                            values[i] = temperature.getTemperatureC();
+                            present[i] = true;
+                        }
+                    }
+                }
+                case HUMIDITY -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof ClimateSensorAvro climate) {
+                            values[i] = climate.getHumidity();
+                            present[i] = true;
+                        }
+                    }
+                }
+                case CO2LEVEL -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof ClimateSensorAvro climate) {
+                            values[i] = climate.getCo2Level();
+                            present[i] = true;
+                        }
+                    }
+                }
+                case MOTION -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof MotionSensorAvro motion) {
+                            values[i] = motion.getMotion() ? 1 : 0;
+                            present[i] = true;
+                        }
+                    }
+                }
+                case LUMINOSITY -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof LightSensorAvro light) {
+                            values[i] = light.getLuminosity();
+                            present[i] = true;
+                        }
+                    }
+                }
+                case SWITCH -> {
+                    for (int i = 0; i < size; i++) {
+                        if (data[i] instanceof SwitchSensorAvro sw) {
+                            values[i] = sw.getState() ? 1 : 0;
+                            present[i] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        void compare(boolean[] results) {
+            for (int i = 0; i < size; i++) {
+                results[slots[i]] = present[i] & lowers[i] <= values[i] & values[i] <= uppers[i];
+            }
+        }
+    }
+}
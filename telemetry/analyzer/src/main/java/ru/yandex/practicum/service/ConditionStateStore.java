@@ -0,0 +1,100 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.ConditionRule;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Инкрементальное состояние условий с гистерезисом и выдержкой по времени, сгруппированное по хабам.
+ * Для каждого условия хранится только флаг выполнения и момент, с которого оно непрерывно выполняется,
+ * поэтому история показаний не нужна. Состояние меняет только поток обработки снапшотов,
+ * поток событий хабов лишь удаляет записи удаленных условий.
+ */
+@Component
+public class ConditionStateStore {
+
+    private static final long NOT_HOLDING = -1;
+
+    private final Map<String, Map<Long, ConditionState>> hubStates = new ConcurrentHashMap<>();
+
+    /**
+     * Выполнялось ли условие на предыдущем снапшоте без учета выдержки; для условий с гистерезисом
+     * от этого зависит, какой порог использовать.
+     */
+    public boolean isLatched(String hubId, ConditionRule condition) {
+        ConditionState state = find(hubId, condition);
+        return state != null && state.latched;
+    }
+
+    /**
+     * Условие выполняется, но еще не продержалось нужное время: его нужно перепроверить
+     * на следующем снапшоте, даже если показания датчика не изменились.
+     */
+    public boolean isPending(String hubId, ConditionRule condition) {
+        ConditionState state = find(hubId, condition);
+        return state != null && state.pending();
+    }
+
+    public boolean hasPending(String hubId) {
+        Map<Long, ConditionState> states = hubStates.get(hubId);
+        return states != null && states.values().stream().anyMatch(ConditionState::pending);
+    }
+
+    /**
+     * Учитывает мгновенный результат условия на снапшоте с указанным временем и возвращает итоговый
+     * результат с учетом выдержки.
+     */
+    public boolean apply(String hubId, ConditionRule condition, boolean satisfied, long timestamp) {
+        ConditionState state = hubStates
+                .computeIfAbsent(hubId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(condition.id(), id -> new ConditionState());
+        state.latched = satisfied;
+
+        if (condition.heldForSeconds() <= 0) {
+            return satisfied;
+        }
+        if (!satisfied) {
+            state.holdingSince = NOT_HOLDING;
+            state.held = false;
+            return false;
+        }
+        if (state.holdingSince == NOT_HOLDING) {
+            state.holdingSince = timestamp;
+        }
+        state.held = timestamp - state.holdingSince >= condition.heldForSeconds() * 1000L;
+        return state.held;
+    }
+
+    public void remove(String hubId, Collection<Long> conditionIds) {
+        Map<Long, ConditionState> states = hubStates.get(hubId);
+        if (states == null) {
+            return;
+        }
+        conditionIds.forEach(states::remove);
+        if (states.isEmpty()) {
+            hubStates.remove(hubId, states);
+        }
+    }
+
+    public int getTrackedHubCount() {
+        return hubStates.size();
+    }
+
+    private ConditionState find(String hubId, ConditionRule condition) {
+        Map<Long, ConditionState> states = hubStates.get(hubId);
+        return states != null ? states.get(condition.id()) : null;
+    }
+
+    private static final class ConditionState {
+        private boolean latched;
+        private boolean held;
+        private long holdingSince = NOT_HOLDING;
+
+        private boolean pending() {
+            return holdingSince != NOT_HOLDING && !held;
+        }
+    }
+}
@@ -2,15 +2,18 @@ package ru.yandex.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.avro.io.BinaryDecoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import ru.yandex.practicum.deserializer.HubEventDeserializer;
 import ru.yandex.practicum.entity.Action;
+import ru.yandex.practicum.entity.ActionType;
 import ru.yandex.practicum.entity.Condition;
+import ru.yandex.practicum.entity.ConditionOperation;
+import ru.yandex.practicum.entity.ConditionType;
 import ru.yandex.practicum.entity.Scenario;
 import ru.yandex.practicum.entity.ScenarioActionId;
 import ru.yandex.practicum.entity.ScenarioConditionId;
@@ -30,8 +33,7 @@ import ru.yandex.practicum.repository.ScenarioRepository;
 import ru.yandex.practicum.repository.SensorRepository;
 
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -45,12 +47,14 @@ public class HubEventService {
     private final ActionRepository actionRepository;
     private final ScenarioConditionRepository scenarioConditionRepository;
     private final ScenarioActionRepository scenarioActionRepository;
-    private final DecoderFactory decoderFactory = DecoderFactory.get();
+    private final SnapshotDeltaTracker snapshotDeltaTracker;
+    private final ConditionStateStore conditionStateStore;
+    private final HubEventDeserializer hubEventDeserializer;
 
     @Transactional
-    public void processHubEvent(byte[] eventData) {
+    public void processHubEvent(byte[] eventData, byte[] schemaFingerprint) {
         try {
-            HubEventAvro hubEvent = deserializeHubEvent(eventData);
+            HubEventAvro hubEvent = hubEventDeserializer.deserialize(eventData, schemaFingerprint);
             String hubId = hubEvent.getHubId();
             log.info("Processing hub event for hub: {}, payload type: {}",
                     hubId, hubEvent.getPayload().getClass().getSimpleName());
@@ -67,12 +71,38 @@ public class HubEventService {
                 log.warn("Unknown hub event payload type: {}", hubEvent.getPayload().getClass().getSimpleName());
             }
 
+            invalidateSnapshotStateAfterCommit(hubId);
             log.info("Successfully processed hub event for hub: {}", hubId);
         } catch (Exception e) {
             log.error("Failed to process hub event", e);
         }
     }
 
+    private void invalidateSnapshotStateAfterCommit(String hubId) {
+        // после изменения сценариев или устройств следующий снапшот хаба нужно оценить целиком
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                snapshotDeltaTracker.invalidate(hubId);
+            }
+        });
+    }
+
+    private void forgetConditionStateAfterCommit(String hubId, Long scenarioId) {
+        List<Long> conditionIds = scenarioConditionRepository.findByIdScenarioId(scenarioId).stream()
+                .map(scenarioCondition -> scenarioCondition.getId().getConditionId())
+                .toList();
+        if (conditionIds.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                conditionStateStore.remove(hubId, conditionIds);
+            }
+        });
+    }
+
     private void processDeviceAddedEvent(String hubId, DeviceAddedEventAvro event) {
         try {
             if (sensorRepository.existsById(event.getId())) {
@@ -115,6 +145,7 @@ public class HubEventService {
             Scenario scenario;
             if (existingScenario.isPresent()) {
                 scenario = existingScenario.get();
+                forgetConditionStateAfterCommit(hubId, scenario.getId());
                 scenarioConditionRepository.deleteByIdScenarioId(scenario.getId());
                 scenarioActionRepository.deleteByIdScenarioId(scenario.getId());
                 scenarioRepository.flush();
@@ -165,11 +196,15 @@ public class HubEventService {
                     .orElseThrow(() -> new RuntimeException("Sensor not found: " + sensorId + " for scenario: " + scenario.getName()));
 
             Condition conditionEntity = new Condition();
-            conditionEntity.setType(condition.getType().toString());
-            conditionEntity.setOperation(condition.getOperation().toString());
+            conditionEntity.setType(ConditionType.valueOf(condition.getType().name()));
+            conditionEntity.setOperation(ConditionOperation.valueOf(condition.getOperation().name()));
 
             Integer conditionValue = extractConditionValue(condition);
             conditionEntity.setValue(conditionValue);
+            conditionEntity.setUpperValue(condition.getUpperValue());
+            conditionEntity.setHysteresis(condition.getHysteresis());
+            conditionEntity.setHeldForSeconds(condition.getHeldForSeconds());
+            validateCondition(scenario, conditionEntity);
 
             Condition savedCondition = conditionRepository.save(conditionEntity);
 
@@ -203,7 +238,7 @@ public class HubEventService {
                     .orElseThrow(() -> new RuntimeException("Sensor not found: " + sensorId + " for scenario: " + scenario.getName()));
 
             Action actionEntity = new Action();
-            actionEntity.setType(action.getType().toString());
+            actionEntity.setType(ActionType.valueOf(action.getType().name()));
             actionEntity.setValue(action.getValue());
 
             Action savedAction = actionRepository.save(actionEntity);
@@ -231,6 +266,18 @@ public class HubEventService {
         }
     }
 
+    private void validateCondition(Scenario scenario, Condition condition) {
+        if (condition.getOperation() == ConditionOperation.BETWEEN
+                && (condition.getValue() == null || condition.getUpperValue() == null
+                || condition.getUpperValue() < condition.getValue())) {
+            throw new IllegalArgumentException("Invalid BETWEEN bounds for scenario: " + scenario.getName());
+        }
+        if (condition.getHysteresis() != null && condition.getHysteresis() < 0
+                || condition.getHeldForSeconds() != null && condition.getHeldForSeconds() < 0) {
+            throw new IllegalArgumentException("Negative hysteresis or hold time for scenario: " + scenario.getName());
+        }
+    }
+
     private Integer extractConditionValue(ru.yandex.practicum.kafka.telemetry.event.ScenarioCondition condition) {
         Object value = condition.getValue();
 
@@ -254,6 +301,7 @@ public class HubEventService {
         try {
             scenarioRepository.findByHubIdAndName(hubId, event.getName())
                     .ifPresent(scenario -> {
+                        forgetConditionStateAfterCommit(hubId, scenario.getId());
                         scenarioConditionRepository.deleteByIdScenarioId(scenario.getId());
                         scenarioActionRepository.deleteByIdScenarioId(scenario.getId());
                         scenarioRepository.delete(scenario);
@@ -263,12 +311,4 @@ public class HubEventService {
             log.error("Failed to remove scenario: {} from hub: {}", event.getName(), hubId, e);
         }
     }
-
-    private HubEventAvro deserializeHubEvent(byte[] data) throws IOException {
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(data)) {
-            BinaryDecoder decoder = decoderFactory.binaryDecoder(inputStream, null);
-            SpecificDatumReader<HubEventAvro> reader = new SpecificDatumReader<>(HubEventAvro.getClassSchema());
-            return reader.read(null, decoder);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.entity.Condition;
+import ru.yandex.practicum.entity.Scenario;
+import ru.yandex.practicum.entity.ScenarioAction;
+import ru.yandex.practicum.entity.ScenarioCondition;
+import ru.yandex.practicum.model.ActionRule;
+import ru.yandex.practicum.model.ConditionRule;
+import ru.yandex.practicum.model.ScenarioRule;
+import ru.yandex.practicum.repository.ScenarioRepository;
+
+import java.util.List;
+
+/**
+ * Загружает правила хаба в короткой read-only транзакции и отдает их в виде неизменяемых
+ * объектов. Соединение с БД возвращается в пул сразу после выхода из метода.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HubRuleService {
+
+    private final ScenarioRepository scenarioRepository;
+
+    @Transactional(readOnly = true)
+    public List<ScenarioRule> loadRules(String hubId) {
+        List<Scenario> scenarios = scenarioRepository.findByHubIdWithConditions(hubId);
+        if (scenarios.isEmpty()) {
+            return List.of();
+        }
+        scenarioRepository.findByHubIdWithActions(hubId);
+
+        List<ScenarioRule> rules = scenarios.stream()
+                .map(this::toRule)
+                .toList();
+        log.debug("Loaded {} scenario rules for hub: {}", rules.size(), hubId);
+        return rules;
+    }
+
+    private ScenarioRule toRule(Scenario scenario) {
+        List<ConditionRule> conditions = scenario.getConditions().stream()
+                .map(this::toConditionRule)
+                .toList();
+        List<ActionRule> actions = scenario.getActions().stream()
+                .map(this::toActionRule)
+                .toList();
+        return new ScenarioRule(scenario.getId(), scenario.getName(), conditions, actions);
+    }
+
+    private ConditionRule toConditionRule(ScenarioCondition scenarioCondition) {
+        Condition condition = scenarioCondition.getCondition();
+        return new ConditionRule(
+                condition.getId(),
+                scenarioCondition.getId().getSensorId(),
+                condition.getType(),
+                condition.getOperation(),
+                condition.getValue(),
+                condition.getUpperValue(),
+                condition.getHysteresis() != null ? condition.getHysteresis() : 0,
+                condition.getHeldForSeconds() != null ? condition.getHeldForSeconds() : 0
+        );
+    }
+
+    private ActionRule toActionRule(ScenarioAction scenarioAction) {
+        return new ActionRule(
+                scenarioAction.getId().getSensorId(),
+                scenarioAction.getAction().getType(),
+                scenarioAction.getAction().getValue()
+        );
+    }
+}
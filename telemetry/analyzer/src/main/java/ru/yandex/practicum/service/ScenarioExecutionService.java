@@ -4,107 +4,186 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import ru.yandex.practicum.entity.Action;
-import ru.yandex.practicum.entity.Scenario;
-import ru.yandex.practicum.entity.ScenarioAction;
-import ru.yandex.practicum.entity.ScenarioCondition;
-import ru.yandex.practicum.entity.Sensor;
+import ru.yandex.practicum.entity.ActionType;
 import ru.yandex.practicum.grpc.telemetry.event.ActionTypeProto;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceActionProto;
 import ru.yandex.practicum.grpc.telemetry.hubrouter.DeviceActionRequest;
 import ru.yandex.practicum.grpc.telemetry.hubrouter.HubRouterControllerGrpc;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
-import ru.yandex.practicum.repository.ScenarioActionRepository;
-import ru.yandex.practicum.repository.ScenarioConditionRepository;
-import ru.yandex.practicum.repository.ScenarioRepository;
+import ru.yandex.practicum.logging.SampledLogger;
+import ru.yandex.practicum.model.ActionRule;
+import ru.yandex.practicum.model.ConditionRule;
+import ru.yandex.practicum.model.ScenarioRule;
+import ru.yandex.practicum.model.SnapshotChanges;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class ScenarioExecutionService {
 
+    private static final SampledLogger sampledLog =
+            new SampledLogger(ScenarioExecutionService.class, 100, Duration.ofSeconds(10));
+
     @GrpcClient("hub-router")
     private final HubRouterControllerGrpc.HubRouterControllerBlockingStub hubRouterClient;
-    private final ScenarioRepository scenarioRepository;
-    private final ScenarioConditionRepository scenarioConditionRepository;
-    private final ScenarioActionRepository scenarioActionRepository;
-    private final ConditionEvaluationService conditionEvaluationService;
+    private final HubRuleService hubRuleService;
+    private final ColumnarConditionEvaluator conditionEvaluator;
+    private final ConditionStateStore conditionStateStore;
+
+    /**
+     * Вычисляет сценарии по изменениям и отправляет действия.
+     *
+     * @return хабы, по которым не удалось загрузить правила или отправить действия
+     */
+    public Set<String> executeScenarios(List<SnapshotChanges> changes) {
+        Set<String> failedHubs = new HashSet<>();
+        // правила читаются в коротких read-only транзакциях, дальше ни соединение, ни транзакция не удерживаются
+        ColumnarConditionEvaluator.Batch batch = conditionEvaluator.newBatch();
+        List<Candidate> candidates = new ArrayList<>();
+        // в одном poll'е может быть несколько снапшотов хаба, правила читаются один раз
+        Map<String, List<ScenarioRule>> rulesByHub = new HashMap<>();
+        Set<String> hubsInBatch = new HashSet<>();
+        for (SnapshotChanges change : changes) {
+            // состояние условий хаба обновляется после вычисления пакета, поэтому следующий снапшот
+            // того же хаба должен попасть уже в новый пакет
+            if (!hubsInBatch.add(change.snapshot().getHubId())) {
+                evaluateAndDispatch(batch, candidates, failedHubs);
+                batch = conditionEvaluator.newBatch();
+                candidates = new ArrayList<>();
+                hubsInBatch.clear();
+                hubsInBatch.add(change.snapshot().getHubId());
+            }
+            collectCandidates(change, rulesByHub, batch, candidates, failedHubs);
+        }
+        evaluateAndDispatch(batch, candidates, failedHubs);
+        return failedHubs;
+    }
 
-    public void executeScenarios(SensorsSnapshotAvro snapshot, List<Scenario> scenarios) {
+    private void evaluateAndDispatch(ColumnarConditionEvaluator.Batch batch, List<Candidate> candidates,
+                                     Set<String> failedHubs) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        boolean[] results = batch.evaluate();
+        log.debug("Evaluated {} conditions of {} scenarios", batch.size(), candidates.size());
+
+        for (Candidate candidate : candidates) {
+            applyConditionState(candidate, results);
+            if (allMet(results, candidate.from(), candidate.to())) {
+                ScenarioRule scenario = candidate.scenario();
+                sampledLog.infoForKey(scenario.id(), "EXECUTING SCENARIO: {} for hub: {}", scenario.name(), candidate.hubId());
+                if (!executeScenarioActions(candidate.hubId(), scenario)) {
+                    failedHubs.add(candidate.hubId());
+                }
+            }
+        }
+    }
+
+    private void collectCandidates(SnapshotChanges change, Map<String, List<ScenarioRule>> rulesByHub,
+                                   ColumnarConditionEvaluator.Batch batch, List<Candidate> candidates,
+                                   Set<String> failedHubs) {
+        SensorsSnapshotAvro snapshot = change.snapshot();
         String hubId = snapshot.getHubId();
-        log.info("=== ANALYZING SNAPSHOT FOR HUB: {} ===", hubId);
-        log.info("Found {} scenarios to check", scenarios.size());
+        log.debug("=== ANALYZING SNAPSHOT FOR HUB: {} ===", hubId);
 
-        for (Scenario scenario : scenarios) {
-            try {
-                log.info("Checking scenario: {} for hub: {}", scenario.getName(), hubId);
+        List<ScenarioRule> scenarios;
+        try {
+            scenarios = rulesByHub.computeIfAbsent(hubId, hubRuleService::loadRules);
+        } catch (Exception e) {
+            log.error("Failed to load scenarios for hub: {}", hubId, e);
+            failedHubs.add(hubId);
+            return;
+        }
+        log.debug("Found {} scenarios to check", scenarios.size());
 
-                List<ScenarioCondition> conditions = scenarioConditionRepository
-                        .findWithAssociationsByIdScenarioId(scenario.getId());
-                log.info("Loaded {} conditions for scenario: {}", conditions.size(), scenario.getName());
+        for (ScenarioRule scenario : scenarios) {
+            List<ConditionRule> conditions = scenario.conditions();
+            if (conditions.isEmpty()) {
+                sampledLog.warnForKey(scenario.id(), "No conditions found for scenario: {}", scenario.name());
+                continue;
+            }
 
-                if (conditions.isEmpty()) {
-                    log.warn("No conditions found for scenario: {}", scenario.getName());
-                    continue;
-                }
+            // условие с незавершенной выдержкой перепроверяется, даже если показания не менялись
+            boolean affected = conditions.stream()
+                    .anyMatch(condition -> change.changedSensors().contains(condition.sensorId())
+                            || condition.heldForSeconds() > 0 && conditionStateStore.isPending(hubId, condition));
+            if (!affected) {
+                log.debug("No condition sensors changed for scenario: {}, skipping", scenario.name());
+                continue;
+            }
 
-                boolean conditionsMet = conditionEvaluationService.evaluateAllConditions(snapshot, conditions);
-                log.info("Conditions met for scenario {}: {}", scenario.getName(), conditionsMet);
+            int from = batch.size();
+            for (ConditionRule condition : conditions) {
+                boolean latched = condition.hysteresis() > 0 && conditionStateStore.isLatched(hubId, condition);
+                batch.add(snapshot, condition, latched);
+            }
+            candidates.add(new Candidate(hubId, snapshot.getTimestamp(), scenario, from, batch.size()));
+        }
+    }
 
-                if (conditionsMet) {
-                    log.info("EXECUTING SCENARIO: {} for hub: {}", scenario.getName(), hubId);
-                    executeScenarioActions(hubId, scenario);
-                }
-            } catch (Exception e) {
-                log.error("Error executing scenario: {} for hub: {}", scenario.getName(), hubId, e);
+    private void applyConditionState(Candidate candidate, boolean[] results) {
+        List<ConditionRule> conditions = candidate.scenario().conditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            ConditionRule condition = conditions.get(i);
+            if (condition.isStateful()) {
+                int slot = candidate.from() + i;
+                results[slot] = conditionStateStore.apply(candidate.hubId(), condition, results[slot], candidate.timestamp());
+            }
+        }
+    }
+
+    private static boolean allMet(boolean[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!results[i]) {
+                return false;
             }
         }
+        return true;
     }
 
-    private void executeScenarioActions(String hubId, Scenario scenario) {
+    private boolean executeScenarioActions(String hubId, ScenarioRule scenario) {
         try {
-            List<ScenarioAction> scenarioActions = scenarioActionRepository
-                    .findWithAssociationsByIdScenarioId(scenario.getId());
-            log.info("Executing {} actions for scenario: {} on hub: {}",
-                    scenarioActions.size(), scenario.getName(), hubId);
-
-            if (scenarioActions.isEmpty()) {
-                log.warn("No actions found for scenario: {}", scenario.getName());
-                return;
+            List<ActionRule> actions = scenario.actions();
+            log.debug("Executing {} actions for scenario: {} on hub: {}",
+                    actions.size(), scenario.name(), hubId);
+
+            if (actions.isEmpty()) {
+                log.warn("No actions found for scenario: {}", scenario.name());
+                return true;
             }
 
-            for (ScenarioAction scenarioAction : scenarioActions) {
-                executeSingleAction(hubId, scenario.getName(), scenarioAction);
+            boolean allSent = true;
+            for (ActionRule action : actions) {
+                allSent &= executeSingleAction(hubId, scenario.name(), action);
             }
+            return allSent;
 
         } catch (Exception e) {
-            log.error("Failed to execute scenario actions: {}", scenario.getName(), e);
+            log.error("Failed to execute scenario actions: {}", scenario.name(), e);
+            return false;
         }
     }
 
-    private void executeSingleAction(String hubId, String scenarioName, ScenarioAction scenarioAction) {
+    private boolean executeSingleAction(String hubId, String scenarioName, ActionRule action) {
         try {
-            Sensor sensor = scenarioAction.getSensor();
-            Action action = scenarioAction.getAction();
-
-            if (sensor == null || action == null) {
-                log.warn("Invalid scenario action: missing sensor or action for scenario: {}", scenarioName);
-                return;
-            }
-
-            log.info("Sending action to Hub Router - Hub: {}, Scenario: {}, Sensor: {}, Action: {}",
-                    hubId, scenarioName, sensor.getId(), action.getType());
+            log.debug("Sending action to Hub Router - Hub: {}, Scenario: {}, Sensor: {}, Action: {}",
+                    hubId, scenarioName, action.sensorId(), action.type());
 
             DeviceActionProto actionProto = DeviceActionProto.newBuilder()
-                    .setSensorId(sensor.getId())
-                    .setType(mapActionType(action.getType()))
-                    .setValue(action.getValue() != null ? action.getValue() : 0)
+                    .setSensorId(action.sensorId())
+                    .setType(mapActionType(action.type()))
+                    .setValue(action.value() != null ? action.value() : 0)
                     .build();
 
             DeviceActionRequest request = DeviceActionRequest.newBuilder()
@@ -118,32 +197,30 @@ public class ScenarioExecutionService {
                     .build();
 
             hubRouterClient.handleDeviceAction(request);
-            log.info("SUCCESS: Sent device action for scenario: {}, sensor: {}, action: {}",
-                    scenarioName, sensor.getId(), action.getType());
+            sampledLog.info("SUCCESS: Sent device action for scenario: {}, sensor: {}, action: {}",
+                    scenarioName, action.sensorId(), action.type());
+            return true;
 
         } catch (Exception e) {
             log.error("FAILED to send device action for scenario: {}, sensor: {}",
-                    scenarioName, scenarioAction.getSensor().getId(), e);
+                    scenarioName, action.sensorId(), e);
+            return false;
         }
     }
 
-    private ActionTypeProto mapActionType(String actionType) {
+    private ActionTypeProto mapActionType(ActionType actionType) {
         if (actionType == null) {
             return ActionTypeProto.ACTIVATE;
         }
 
-        switch (actionType.toUpperCase()) {
-            case "ACTIVATE":
-                return ActionTypeProto.ACTIVATE;
-            case "DEACTIVATE":
-                return ActionTypeProto.DEACTIVATE;
-            case "INVERSE":
-                return ActionTypeProto.INVERSE;
-            case "SET_VALUE":
-                return ActionTypeProto.SET_VALUE;
-            default:
-                log.warn("Unknown action type: {}, defaulting to ACTIVATE", actionType);
-                return ActionTypeProto.ACTIVATE;
-        }
+        return switch (actionType) {
+            case ACTIVATE -> ActionTypeProto.ACTIVATE;
+            case DEACTIVATE -> ActionTypeProto.DEACTIVATE;
+            case INVERSE -> ActionTypeProto.INVERSE;
+            case SET_VALUE -> ActionTypeProto.SET_VALUE;
+        };
+    }
+
+    private record Candidate(String hubId, long timestamp, ScenarioRule scenario, int from, int to) {
     }
-}
\ No newline at end of file
+}
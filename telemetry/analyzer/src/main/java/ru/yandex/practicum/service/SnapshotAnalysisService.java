@@ -6,31 +6,56 @@ import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.entity.Scenario;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
-import ru.yandex.practicum.repository.ScenarioRepository;
+import ru.yandex.practicum.model.SnapshotChanges;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SnapshotAnalysisService {
 
-    private final ScenarioRepository scenarioRepository;
     private final ScenarioExecutionService scenarioExecutionService;
+    private final SnapshotDeltaTracker snapshotDeltaTracker;
+    private final ConditionStateStore conditionStateStore;
     private final DecoderFactory decoderFactory = DecoderFactory.get();
 
-    public void analyzeSnapshot(SensorsSnapshotAvro snapshot) {
-        String hubId = snapshot.getHubId();
-        log.info("=== STARTING SNAPSHOT ANALYSIS ===");
+    /**
+     * Обрабатывает все снапшоты одного poll'а: условия изменившихся сценариев вычисляются одним пакетом.
+     * Состояние хабов в SnapshotDeltaTracker сохраняется только после вычисления и отправки действий;
+     * хаб, по которому обработка не удалась, сбрасывается, и следующий его снапшот обрабатывается целиком.
+     */
+    public void analyzeSnapshots(List<SensorsSnapshotAvro> snapshots) {
+        log.debug("=== STARTING ANALYSIS OF {} SNAPSHOTS ===", snapshots.size());
 
-        List<Scenario> scenarios = scenarioRepository.findByHubId(hubId);
-        log.info("Found {} scenarios for hub: {}", scenarios.size(), hubId);
+        long generation = snapshotDeltaTracker.getGeneration();
+        // последний снапшот каждого хаба в этом poll'е: следующий снапшот хаба сравнивается с ним
+        Map<String, SensorsSnapshotAvro> latestByHub = new LinkedHashMap<>();
+        List<SnapshotChanges> changes = new ArrayList<>(snapshots.size());
+        for (SensorsSnapshotAvro snapshot : snapshots) {
+            SensorsSnapshotAvro previous = latestByHub.put(snapshot.getHubId(), snapshot);
+            Set<String> changedSensors = previous == null
+                    ? snapshotDeltaTracker.computeChangedSensors(snapshot)
+                    : snapshotDeltaTracker.computeChangedSensors(previous, snapshot);
+            if (changedSensors.isEmpty() && !conditionStateStore.hasPending(snapshot.getHubId())) {
+                log.debug("No sensor changes for hub: {}, skipping evaluation", snapshot.getHubId());
+                continue;
+            }
+            changes.add(new SnapshotChanges(snapshot, changedSensors));
+        }
+
+        Set<String> failedHubs = changes.isEmpty()
+                ? Set.of()
+                : scenarioExecutionService.executeScenarios(changes);
 
-        scenarioExecutionService.executeScenarios(snapshot, scenarios);
+        snapshotDeltaTracker.commit(latestByHub.values(), failedHubs, generation);
     }
 
     private SensorsSnapshotAvro deserializeSnapshot(byte[] data) throws IOException {
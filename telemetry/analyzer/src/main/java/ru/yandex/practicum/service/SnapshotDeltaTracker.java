@@ -0,0 +1,122 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.SnapshotStateProperties;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Хранит последний обработанный снапшот каждого хаба и определяет, показания каких датчиков
+ * изменились с тех пор. Изменение таймстемпа без изменения данных изменением не считается.
+ * Для хаба без сохраненного состояния изменившимися считаются все датчики снапшота.
+ * Вычисление изменений состояние не меняет: снапшот сохраняется через commit только после того,
+ * как сценарии по нему вычислены и действия отправлены, иначе следующий снапшот сравнивается
+ * с последним успешно обработанным.
+ */
+@Slf4j
+@Component
+public class SnapshotDeltaTracker {
+
+    private final SnapshotStateProperties properties;
+    private final Map<String, Map<String, SensorStateAvro>> lastStates;
+    // увеличивается при каждом сбросе; commit, начатый до сброса, не должен вернуть старое состояние
+    private long generation;
+
+    public SnapshotDeltaTracker(SnapshotStateProperties properties) {
+        this.properties = properties;
+        int maxHubs = properties.getMaxHubs();
+        this.lastStates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, SensorStateAvro>> eldest) {
+                return size() > maxHubs;
+            }
+        };
+    }
+
+    /**
+     * Изменения относительно последнего сохраненного снапшота хаба.
+     */
+    public synchronized Set<String> computeChangedSensors(SensorsSnapshotAvro snapshot) {
+        Map<String, SensorStateAvro> current = snapshot.getSensorsState();
+        if (!properties.isEnabled()) {
+            return current.keySet();
+        }
+
+        Map<String, SensorStateAvro> previous = lastStates.get(snapshot.getHubId());
+        if (previous == null) {
+            return current.keySet();
+        }
+        return diff(snapshot.getHubId(), previous, current);
+    }
+
+    /**
+     * Изменения относительно предыдущего снапшота того же хаба, еще не сохраненного через commit.
+     */
+    public Set<String> computeChangedSensors(SensorsSnapshotAvro previous, SensorsSnapshotAvro snapshot) {
+        if (!properties.isEnabled()) {
+            return snapshot.getSensorsState().keySet();
+        }
+        return diff(snapshot.getHubId(), previous.getSensorsState(), snapshot.getSensorsState());
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Сохраняет обработанные снапшоты, если с момента getGeneration хабы не сбрасывались,
+     * и сбрасывает хабы, обработка которых не удалась.
+     */
+    public synchronized void commit(Collection<SensorsSnapshotAvro> snapshots, Set<String> failedHubs,
+                                    long expectedGeneration) {
+        failedHubs.forEach(lastStates::remove);
+        if (!properties.isEnabled() || generation != expectedGeneration) {
+            return;
+        }
+        for (SensorsSnapshotAvro snapshot : snapshots) {
+            if (!failedHubs.contains(snapshot.getHubId())) {
+                lastStates.put(snapshot.getHubId(), snapshot.getSensorsState());
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает состояние хаба, чтобы следующий снапшот был обработан целиком,
+     * например после изменения сценариев или устройств хаба.
+     */
+    public synchronized void invalidate(String hubId) {
+        generation++;
+        lastStates.remove(hubId);
+    }
+
+    public synchronized int getTrackedHubCount() {
+        return lastStates.size();
+    }
+
+    private static Set<String> diff(String hubId, Map<String, SensorStateAvro> previous,
+                                    Map<String, SensorStateAvro> current) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, SensorStateAvro> entry : current.entrySet()) {
+            SensorStateAvro old = previous.get(entry.getKey());
+            if (old == null || !Objects.equals(old.getData(), entry.getValue().getData())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String sensorId : previous.keySet()) {
+            if (!current.containsKey(sensorId)) {
+                changed.add(sensorId);
+            }
+        }
+
+        log.debug("Hub: {}, changed sensors: {}", hubId, changed);
+        return changed;
+    }
+}
@@ -3,8 +3,9 @@ CREATE TABLE IF NOT EXISTS scenarios (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     hub_id VARCHAR,
     name VARCHAR,
-    UNIQUE(hub_id, name)
+    CONSTRAINT uq_scenarios_hub_id_name UNIQUE(hub_id, name)
 );
+-- отдельный индекс по hub_id не нужен: findByHubId использует ведущий столбец уникального индекса
 
 -- создаём таблицу sensors
 CREATE TABLE IF NOT EXISTS sensors (
@@ -12,18 +13,27 @@ CREATE TABLE IF NOT EXISTS sensors (
     hub_id VARCHAR
 );
 
+CREATE INDEX IF NOT EXISTS idx_sensors_hub_id ON sensors(hub_id);
+
 -- создаём таблицу conditions
+-- type и operation хранятся кодами (см. ConditionType и ConditionOperation в entity):
+-- type: 1 MOTION, 2 LUMINOSITY, 3 SWITCH, 4 TEMPERATURE, 5 CO2LEVEL, 6 HUMIDITY
+-- operation: 1 EQUALS, 2 GREATER_THAN, 3 LOWER_THAN, 4 BETWEEN (value - нижняя граница, upper_value - верхняя)
 CREATE TABLE IF NOT EXISTS conditions (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
-    type VARCHAR,
-    operation VARCHAR,
-    value INTEGER
+    type SMALLINT NOT NULL CHECK (type BETWEEN 1 AND 6),
+    operation SMALLINT NOT NULL CHECK (operation BETWEEN 1 AND 4),
+    value INTEGER,
+    upper_value INTEGER,
+    hysteresis INTEGER CHECK (hysteresis >= 0),
+    held_for_seconds INTEGER CHECK (held_for_seconds >= 0)
 );
 
 -- создаём таблицу actions
+-- type: 1 ACTIVATE, 2 DEACTIVATE, 3 INVERSE, 4 SET_VALUE (см. ActionType в entity)
 CREATE TABLE IF NOT EXISTS actions (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
-    type VARCHAR,
+    type SMALLINT NOT NULL CHECK (type BETWEEN 1 AND 4),
     value INTEGER
 );
 
@@ -35,6 +45,9 @@ CREATE TABLE IF NOT EXISTS scenario_conditions (
     PRIMARY KEY (scenario_id, sensor_id, condition_id)
 );
 
+-- выборка по scenario_id идет по префиксу первичного ключа, индекс по sensor_id нужен для удаления датчиков
+CREATE INDEX IF NOT EXISTS idx_scenario_conditions_sensor_id ON scenario_conditions(sensor_id);
+
 -- создаём таблицу scenario_actions, связывающую сценарий, датчик и действие, которое нужно выполнить при активации сценария
 CREATE TABLE IF NOT EXISTS scenario_actions (
     scenario_id BIGINT REFERENCES scenarios(id),
@@ -43,27 +56,45 @@ CREATE TABLE IF NOT EXISTS scenario_actions (
     PRIMARY KEY (scenario_id, sensor_id, action_id)
 );
 
--- создаём функцию для проверки, что связываемые сценарий и датчик работают с одним и тем же хабом
+CREATE INDEX IF NOT EXISTS idx_scenario_actions_sensor_id ON scenario_actions(sensor_id);
+
+-- создаём функцию для проверки, что связываемые сценарий и датчик работают с одним и тем же хабом.
+-- Проверка выполняется один раз на оператор по таблице вставленных строк, а не отдельными подзапросами на каждую строку
 CREATE OR REPLACE FUNCTION check_hub_id()
 RETURNS TRIGGER AS
 '
+DECLARE
+    mismatch RECORD;
 BEGIN
-    IF (SELECT hub_id FROM scenarios WHERE id = NEW.scenario_id) != (SELECT hub_id FROM sensors WHERE id = NEW.sensor_id) THEN
-        RAISE EXCEPTION ''Hub IDs do not match for scenario_id % and sensor_id %'', NEW.scenario_id, NEW.sensor_id;
+    SELECT n.scenario_id, n.sensor_id INTO mismatch
+    FROM new_rows n
+    JOIN scenarios sc ON sc.id = n.scenario_id
+    JOIN sensors se ON se.id = n.sensor_id
+    WHERE sc.hub_id IS DISTINCT FROM se.hub_id
+    LIMIT 1;
+
+    IF FOUND THEN
+        RAISE EXCEPTION ''Hub IDs do not match for scenario_id % and sensor_id %'', mismatch.scenario_id, mismatch.sensor_id;
     END IF;
-    RETURN NEW;
+    RETURN NULL;
 END;
 '
 LANGUAGE plpgsql;
 
+-- удаляем построчные триггеры из предыдущей версии схемы
+DROP TRIGGER IF EXISTS tr_bi_scenario_conditions_hub_id_check ON scenario_conditions;
+DROP TRIGGER IF EXISTS tr_bi_scenario_actions_hub_id_check ON scenario_actions;
+
 -- создаём триггер, проверяющий, что «условие» связывает корректные сценарий и датчик
-CREATE OR REPLACE TRIGGER tr_bi_scenario_conditions_hub_id_check
-BEFORE INSERT ON scenario_conditions
-FOR EACH ROW
+CREATE OR REPLACE TRIGGER tr_ai_scenario_conditions_hub_id_check
+AFTER INSERT ON scenario_conditions
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT
 EXECUTE FUNCTION check_hub_id();
 
 -- создаём триггер, проверяющий, что «действие» связывает корректные сценарий и датчик
-CREATE OR REPLACE TRIGGER tr_bi_scenario_actions_hub_id_check
-BEFORE INSERT ON scenario_actions
-FOR EACH ROW
-EXECUTE FUNCTION check_hub_id();
\ No newline at end of file
+CREATE OR REPLACE TRIGGER tr_ai_scenario_actions_hub_id_check
+AFTER INSERT ON scenario_actions
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT
+EXECUTE FUNCTION check_hub_id();
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.entity.ConditionOperation;
+import ru.yandex.practicum.entity.ConditionType;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.model.ConditionRule;
+import ru.yandex.practicum.service.ColumnarConditionEvaluator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вычисление всех условий одного poll'а: columnar - текущий пакетный ColumnarConditionEvaluator
+ * (добавление условий в пакет и один evaluate), perCondition - прежний ConditionEvaluationService,
+ * перенесенный сюда без логирования (упакованный Integer, цепочка instanceof и switch по операции
+ * на каждое условие), поэтому сравнение не в пользу текущей схемы.
+ * Условия распределены по hubs снапшотам, у каждого хаба devices датчиков всех типов; часть условий
+ * ссылается на отсутствующий в снапшоте датчик.
+ * Запуск: main этого класса из IDE или
+ * mvn -pl telemetry/analyzer test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.ConditionEvaluationBenchmark
+ * Выделение памяти на пакет печатается профилировщиком gc (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConditionEvaluationBenchmark {
+
+    private static final ConditionType[] TYPES = ConditionType.values();
+    private static final ConditionOperation[] OPERATIONS = ConditionOperation.values();
+
+    @Param({"1000", "10000", "100000"})
+    private int conditions;
+
+    @Param({"100"})
+    private int hubs;
+
+    @Param({"20"})
+    private int devices;
+
+    private final ColumnarConditionEvaluator evaluator = new ColumnarConditionEvaluator();
+    private SensorsSnapshotAvro[] snapshots;
+    private SensorsSnapshotAvro[] conditionSnapshots;
+    private ConditionRule[] rules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        snapshots = new SensorsSnapshotAvro[hubs];
+        for (int hub = 0; hub < hubs; hub++) {
+            Map<String, SensorStateAvro> states = new HashMap<>();
+            for (int device = 0; device < devices; device++) {
+                states.put(sensorId(hub, device), SensorStateAvro.newBuilder()
+                        .setTimestamp(1_700_000_000_000L)
+                        .setData(sensorData(device, random))
+                        .build());
+            }
+            snapshots[hub] = SensorsSnapshotAvro.newBuilder()
+                    .setHubId("hub-" + hub)
+                    .setTimestamp(1_700_000_000_000L)
+                    .setSensorsState(states)
+                    .build();
+        }
+
+        conditionSnapshots = new SensorsSnapshotAvro[conditions];
+        rules = new ConditionRule[conditions];
+        for (int i = 0; i < conditions; i++) {
+            int hub = random.nextInt(hubs);
+            // каждое двадцатое условие ссылается на датчик, которого нет в снапшоте
+            int device = i % 20 == 0 ? devices : random.nextInt(devices);
+            ConditionOperation operation = OPERATIONS[random.nextInt(OPERATIONS.length)];
+            int value = random.nextInt(600);
+            conditionSnapshots[i] = snapshots[hub];
+            rules[i] = new ConditionRule((long) i, sensorId(hub, device), TYPES[random.nextInt(TYPES.length)],
+                    operation, value, operation == ConditionOperation.BETWEEN ? value + random.nextInt(200) : null,
+                    0, 0);
+        }
+    }
+
+    @Benchmark
+    public boolean[] columnar() {
+        ColumnarConditionEvaluator.Batch batch = evaluator.newBatch();
+        for (int i = 0; i < conditions; i++) {
+            batch.add(conditionSnapshots[i], rules[i], false);
+        }
+        return batch.evaluate();
+    }
+
+    @Benchmark
+    public boolean[] perCondition() {
+        boolean[] results = new boolean[conditions];
+        for (int i = 0; i < conditions; i++) {
+            results[i] = PerConditionEvaluator.evaluateCondition(conditionSnapshots[i], rules[i]);
+        }
+        return results;
+    }
+
+    private static String sensorId(int hub, int device) {
+        return "hub-" + hub + "-sensor-" + device;
+    }
+
+    private static Object sensorData(int device, Random random) {
+        return switch (device % 5) {
+            case 0 -> new ClimateSensorAvro(random.nextInt(40), random.nextInt(100), 400 + random.nextInt(600));
+            case 1 -> new LightSensorAvro(90, random.nextInt(600));
+            case 2 -> new MotionSensorAvro(80, random.nextBoolean(), 3);
+            case 3 -> new SwitchSensorAvro(random.nextBoolean());
+            default -> new TemperatureSensorAvro(random.nextInt(40), 32 + random.nextInt(72));
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConditionEvaluationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Прежнее вычисление по одному условию; BETWEEN, которого тогда не было, добавлен тем же способом.
+     */
+    private static final class PerConditionEvaluator {
+
+        private static boolean evaluateCondition(SensorsSnapshotAvro snapshot, ConditionRule condition) {
+            Map<String, SensorStateAvro> sensorStates = snapshot.getSensorsState();
+            if (!sensorStates.containsKey(condition.sensorId())) {
+                return false;
+            }
+            Object sensorData = sensorStates.get(condition.sensorId()).getData();
+            Integer sensorValue = extractSensorValue(sensorData, condition.type());
+            if (sensorValue == null || condition.value() == null || condition.operation() == null) {
+                return false;
+            }
+            return performOperation(sensorValue, condition.operation(), condition.value(), condition.upperValue());
+        }
+
+        private static Integer extractSensorValue(Object sensorData, ConditionType conditionType) {
+            if (sensorData == null || conditionType == null) {
+                return null;
+            }
+            switch (conditionType) {
+                case TEMPERATURE:
+                    if (sensorData instanceof ClimateSensorAvro) {
+                        return (int) ((ClimateSensorAvro) sensorData).getTemperatureC();
+                    } else if (sensorData instanceof TemperatureSensorAvro) {
+                        return (int) ((TemperatureSensorAvro) sensorData).getTemperatureC();
+                    }
+                    break;
+                case HUMIDITY:
+                    if (sensorData instanceof ClimateSensorAvro) {
+                        return (int) ((ClimateSensorAvro) sensorData).getHumidity();
+                    }
+                    break;
+                case CO2LEVEL:
+                    if (sensorData instanceof ClimateSensorAvro) {
+                        return (int) ((ClimateSensorAvro) sensorData).getCo2Level();
+                    }
+                    break;
+                case MOTION:
+                    if (sensorData instanceof MotionSensorAvro) {
+                        return ((MotionSensorAvro) sensorData).getMotion() ? 1 : 0;
+                    }
+                    break;
+                case LUMINOSITY:
+                    if (sensorData instanceof LightSensorAvro) {
+                        return (int) ((LightSensorAvro) sensorData).getLuminosity();
+                    }
+                    break;
+                case SWITCH:
+                    if (sensorData instanceof SwitchSensorAvro) {
+                        return ((SwitchSensorAvro) sensorData).getState() ? 1 : 0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return null;
+        }
+
+        private static boolean performOperation(Integer sensorValue, ConditionOperation operation,
+                                                Integer conditionValue, Integer upperValue) {
+            return switch (operation) {
+                case EQUALS -> sensorValue.equals(conditionValue);
+                case GREATER_THAN -> sensorValue > conditionValue;
+                case LOWER_THAN -> sensorValue < conditionValue;
+                case BETWEEN -> upperValue != null && sensorValue >= conditionValue && sensorValue <= upperValue;
+            };
+        }
+    }
+}
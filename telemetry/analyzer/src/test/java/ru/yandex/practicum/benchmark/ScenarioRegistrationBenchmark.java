@@ -0,0 +1,142 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.yandex.practicum.AnalyzerApplication;
+import ru.yandex.practicum.fixture.HubEventFixtures;
+import ru.yandex.practicum.model.ScenarioRule;
+import ru.yandex.practicum.service.HubEventService;
+import ru.yandex.practicum.service.HubRuleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Регистрация сценария (повторная, с заменой условий и действий) и загрузка правил хаба
+ * через сервисы анализатора на PostgreSQL в контейнере. schema = unindexed удаляет индексы
+ * по hub_id и sensor_id, добавленные вместе с кодами типов, и показывает их вклад; коды типов
+ * в smallint вместо строк в этом режиме остаются.
+ * Запуск (нужен Docker): main этого класса из IDE или
+ * mvn -pl telemetry/analyzer test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.ScenarioRegistrationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ScenarioRegistrationBenchmark {
+
+    private static final List<String> ADDED_INDEXES = List.of(
+            "idx_sensors_hub_id", "idx_scenario_conditions_sensor_id", "idx_scenario_actions_sensor_id");
+
+    @Param({"indexed", "unindexed"})
+    private String schema;
+
+    @Param({"200"})
+    private int hubs;
+
+    @Param({"10"})
+    private int scenariosPerHub;
+
+    @Param({"5"})
+    private int conditionsPerScenario;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private HubEventService hubEventService;
+    private HubRuleService hubRuleService;
+
+    private final List<byte[]> registrations = new ArrayList<>();
+    private final List<String> hubIds = new ArrayList<>();
+    private int nextRegistration;
+    private int nextHub;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        context = new SpringApplicationBuilder(AnalyzerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.jpa.properties.hibernate.generate_statistics=false")
+                .run();
+        hubEventService = context.getBean(HubEventService.class);
+        hubRuleService = context.getBean(HubRuleService.class);
+
+        for (int hub = 0; hub < hubs; hub++) {
+            String hubId = "hub-" + hub;
+            hubIds.add(hubId);
+            List<String> sensorIds = new ArrayList<>();
+            for (int sensor = 0; sensor < conditionsPerScenario * 2; sensor++) {
+                String sensorId = hubId + "-sensor-" + sensor;
+                sensorIds.add(sensorId);
+                hubEventService.processHubEvent(HubEventFixtures.deviceAdded(hubId, sensorId),
+                        HubEventFixtures.SCHEMA_FINGERPRINT);
+            }
+            for (int scenario = 0; scenario < scenariosPerHub; scenario++) {
+                int offset = scenario % conditionsPerScenario;
+                byte[] event = HubEventFixtures.scenarioAdded(hubId, "scenario-" + scenario,
+                        sensorIds.subList(offset, offset + conditionsPerScenario));
+                hubEventService.processHubEvent(event, HubEventFixtures.SCHEMA_FINGERPRINT);
+                registrations.add(event);
+            }
+        }
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if ("unindexed".equals(schema)) {
+            ADDED_INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + index));
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void registerScenario() {
+        byte[] event = registrations.get(nextRegistration);
+        nextRegistration = (nextRegistration + 1) % registrations.size();
+        hubEventService.processHubEvent(event, HubEventFixtures.SCHEMA_FINGERPRINT);
+    }
+
+    @Benchmark
+    public List<ScenarioRule> loadHubRules() {
+        String hubId = hubIds.get(nextHub);
+        nextHub = (nextHub + 1) % hubIds.size();
+        return hubRuleService.loadRules(hubId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ScenarioRegistrationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.fixture;
+
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import ru.yandex.practicum.kafka.telemetry.event.ActionType;
+import ru.yandex.practicum.kafka.telemetry.event.ConditionOperation;
+import ru.yandex.practicum.kafka.telemetry.event.ConditionType;
+import ru.yandex.practicum.kafka.telemetry.event.DeviceAction;
+import ru.yandex.practicum.kafka.telemetry.event.DeviceAddedEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.DeviceType;
+import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ScenarioAddedEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ScenarioCondition;
+import ru.yandex.practicum.serialization.AvroSchemaHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * События хаба в том виде, в каком их пишет коллектор: Avro-байты и отпечаток схемы записи.
+ */
+public final class HubEventFixtures {
+
+    public static final byte[] SCHEMA_FINGERPRINT = AvroSchemaHeaders.encodeFingerprint(
+            SchemaNormalization.parsingFingerprint64(HubEventAvro.getClassSchema()));
+
+    private HubEventFixtures() {
+    }
+
+    public static byte[] deviceAdded(String hubId, String sensorId) {
+        return serialize(hubId, DeviceAddedEventAvro.newBuilder()
+                .setId(sensorId)
+                .setDeviceType(DeviceType.TEMPERATURE_SENSOR)
+                .build());
+    }
+
+    /**
+     * Сценарий с условием "температура выше порога" на каждом датчике и включением первого датчика.
+     */
+    public static byte[] scenarioAdded(String hubId, String name, List<String> sensorIds) {
+        List<ScenarioCondition> conditions = sensorIds.stream()
+                .map(sensorId -> ScenarioCondition.newBuilder()
+                        .setSensorId(sensorId)
+                        .setType(ConditionType.TEMPERATURE)
+                        .setOperation(ConditionOperation.GREATER_THAN)
+                        .setValue(20)
+                        .build())
+                .toList();
+        List<DeviceAction> actions = List.of(DeviceAction.newBuilder()
+                .setSensorId(sensorIds.get(0))
+                .setType(ActionType.ACTIVATE)
+                .build());
+        return serialize(hubId, ScenarioAddedEventAvro.newBuilder()
+                .setName(name)
+                .setConditions(conditions)
+                .setActions(actions)
+                .build());
+    }
+
+    private static byte[] serialize(String hubId, Object payload) {
+        HubEventAvro event = HubEventAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(System.currentTimeMillis())
+                .setPayload(payload)
+                .build();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            new SpecificDatumWriter<>(HubEventAvro.class).write(event, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.yandex.practicum.fixture.HubEventFixtures;
+import ru.yandex.practicum.model.ScenarioRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Правила хаба загружаются двумя запросами (сценарии с условиями, затем действия) при любом
+ * числе сценариев и условий; число запросов считается по статистике Hibernate.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class HubRuleServiceQueryCountTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private HubEventService hubEventService;
+
+    @Autowired
+    private HubRuleService hubRuleService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void loadsRulesOfHubInTwoQueriesRegardlessOfSize() {
+        String smallHub = registerHub(1, 1);
+        String largeHub = registerHub(20, 5);
+
+        statistics.clear();
+        List<ScenarioRule> smallRules = hubRuleService.loadRules(smallHub);
+        long smallQueries = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<ScenarioRule> largeRules = hubRuleService.loadRules(largeHub);
+        long largeQueries = statistics.getPrepareStatementCount();
+
+        assertThat(smallQueries).isEqualTo(2);
+        assertThat(largeQueries).isEqualTo(2);
+        assertThat(smallRules).hasSize(1);
+        assertThat(largeRules).hasSize(20)
+                .allSatisfy(rule -> {
+                    assertThat(rule.conditions()).hasSize(5);
+                    assertThat(rule.actions()).hasSize(1);
+                });
+    }
+
+    @Test
+    void hubWithoutScenariosNeedsOneQuery() {
+        String hubId = "hub-" + UUID.randomUUID();
+
+        statistics.clear();
+        List<ScenarioRule> rules = hubRuleService.loadRules(hubId);
+
+        assertThat(rules).isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private String registerHub(int scenarios, int conditionsPerScenario) {
+        String hubId = "hub-" + UUID.randomUUID();
+        List<String> sensorIds = new ArrayList<>();
+        for (int i = 0; i < conditionsPerScenario; i++) {
+            String sensorId = hubId + "-sensor-" + i;
+            sensorIds.add(sensorId);
+            hubEventService.processHubEvent(HubEventFixtures.deviceAdded(hubId, sensorId),
+                    HubEventFixtures.SCHEMA_FINGERPRINT);
+        }
+        for (int i = 0; i < scenarios; i++) {
+            hubEventService.processHubEvent(HubEventFixtures.scenarioAdded(hubId, "scenario-" + i, sensorIds),
+                    HubEventFixtures.SCHEMA_FINGERPRINT);
+        }
+        return hubId;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties("collector.dedup")
+public class DeduplicationProperties {
+
+    private boolean enabled = false;
+
+    // в пределах окна повторные одинаковые показания датчика не отправляются в Kafka
+    private long windowMs = 30_000;
+
+    // максимальное число устройств, для которых хранится последнее показание
+    private int maxEntries = 1_000_000;
+
+    // период фоновой очистки устаревших записей
+    private long evictionIntervalMs = 10_000;
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties("collector.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // лимит по умолчанию: событий в секунду на хаб и тип устройства
+    private Limit defaultLimit = new Limit(50.0, 100);
+
+    // переопределения лимитов для отдельных типов датчиков
+    private Map<SensorEventProto.PayloadCase, Limit> deviceTypes = new EnumMap<>(SensorEventProto.PayloadCase.class);
+
+    // максимальное число хабов, для которых хранится состояние лимитера
+    private int maxHubs = 100_000;
+
+    // хаб, не присылавший событий дольше этого времени, удаляется из лимитера
+    private long idleEvictionMs = 600_000;
+
+    public Limit limitFor(SensorEventProto.PayloadCase payloadCase) {
+        return deviceTypes.getOrDefault(payloadCase, defaultLimit);
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private double eventsPerSecond;
+        private int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double eventsPerSecond, int burst) {
+            this.eventsPerSecond = eventsPerSecond;
+            this.burst = burst;
+        }
+    }
+}
@@ -1,52 +1,84 @@
 package ru.yandex.practicum.grpc;
 
+import com.google.protobuf.Any;
+import com.google.rpc.Code;
+import com.google.rpc.RetryInfo;
 import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.StatusProto;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.logging.SampledLogger;
+import ru.yandex.practicum.service.HubRateLimiter;
 import ru.yandex.practicum.service.KafkaProducerService;
+import ru.yandex.practicum.service.SensorEventDeduplicator;
 import ru.yandex.practicum.service.SensorEventHandler;
 import com.google.protobuf.Empty;
 
-import java.util.Map;
+import java.time.Duration;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Slf4j
 @GrpcService
 public class CollectorGrpcService extends CollectorControllerGrpc.CollectorControllerImplBase {
 
-    private final Map<SensorEventProto.PayloadCase, SensorEventHandler> sensorEventHandlers;
+    private static final SampledLogger sampledLog =
+            new SampledLogger(CollectorGrpcService.class, 100, Duration.ofSeconds(10));
+
+    // таблица обработчиков, индексированная ordinal() типа события
+    private final SensorEventHandler[] sensorEventHandlers =
+            new SensorEventHandler[SensorEventProto.PayloadCase.values().length];
     private final GrpcToModelMapper grpcToModelMapper;
     private final KafkaProducerService kafkaProducerService;
+    private final HubRateLimiter hubRateLimiter;
+    private final SensorEventDeduplicator sensorEventDeduplicator;
 
     public CollectorGrpcService(Set<SensorEventHandler> sensorEventHandlers,
                                 GrpcToModelMapper grpcToModelMapper,
-                                KafkaProducerService kafkaProducerService) {
+                                KafkaProducerService kafkaProducerService,
+                                HubRateLimiter hubRateLimiter,
+                                SensorEventDeduplicator sensorEventDeduplicator) {
         this.grpcToModelMapper = grpcToModelMapper;
         this.kafkaProducerService = kafkaProducerService;
+        this.hubRateLimiter = hubRateLimiter;
+        this.sensorEventDeduplicator = sensorEventDeduplicator;
 
-        this.sensorEventHandlers = sensorEventHandlers.stream()
-                .collect(Collectors.toMap(
-                        SensorEventHandler::getMessageType,
-                        Function.identity()
-                ));
+        for (SensorEventHandler handler : sensorEventHandlers) {
+            int index = handler.getMessageType().ordinal();
+            if (this.sensorEventHandlers[index] != null) {
+                throw new IllegalStateException("Дублирующийся обработчик для события " + handler.getMessageType());
+            }
+            this.sensorEventHandlers[index] = handler;
+        }
     }
 
     @Override
     public void collectSensorEvent(SensorEventProto request, StreamObserver<Empty> responseObserver) {
         try {
-            log.info("Received sensor event via gRPC: {}", request.getId());
+            log.debug("Received sensor event via gRPC: {}", request.getId());
 
-            if (sensorEventHandlers.containsKey(request.getPayloadCase())) {
-                sensorEventHandlers.get(request.getPayloadCase()).handle(request);
-            } else {
+            long retryAfterNanos = hubRateLimiter.tryAcquire(request.getHubId(), request.getPayloadCase());
+            if (retryAfterNanos > 0) {
+                log.debug("Rate limit exceeded for hub: {}, retry after {} ns", request.getHubId(), retryAfterNanos);
+                responseObserver.onError(resourceExhausted(request.getHubId(), retryAfterNanos));
+                return;
+            }
+
+            if (sensorEventDeduplicator.isDuplicate(request)) {
+                log.debug("Suppressed unchanged reading from device: {}", request.getId());
+                responseObserver.onNext(Empty.getDefaultInstance());
+                responseObserver.onCompleted();
+                return;
+            }
+
+            SensorEventHandler handler = sensorEventHandlers[request.getPayloadCase().ordinal()];
+            if (handler == null) {
                 throw new IllegalArgumentException("Не могу найти обработчик для события " + request.getPayloadCase());
             }
+            handler.handle(request);
 
             responseObserver.onNext(Empty.getDefaultInstance());
             responseObserver.onCompleted();
@@ -59,7 +91,7 @@ public class CollectorGrpcService extends CollectorControllerGrpc.CollectorContr
     @Override
     public void collectHubEvent(HubEventProto request, StreamObserver<Empty> responseObserver) {
         try {
-            log.info("Received hub event via gRPC: {}", request.getHubId());
+            sampledLog.info("Received hub event via gRPC: {}, type: {}", request.getHubId(), request.getPayloadCase());
 
             var hubEvent = grpcToModelMapper.toHubEvent(request);
             kafkaProducerService.sendHubEvent(hubEvent);
@@ -71,4 +103,20 @@ public class CollectorGrpcService extends CollectorControllerGrpc.CollectorContr
             responseObserver.onError(new StatusRuntimeException(io.grpc.Status.fromThrowable(e)));
         }
     }
+
+    private StatusRuntimeException resourceExhausted(String hubId, long retryAfterNanos) {
+        RetryInfo retryInfo = RetryInfo.newBuilder()
+                .setRetryDelay(com.google.protobuf.Duration.newBuilder()
+                        .setSeconds(retryAfterNanos / 1_000_000_000L)
+                        .setNanos((int) (retryAfterNanos % 1_000_000_000L)))
+                .build();
+
+        com.google.rpc.Status status = com.google.rpc.Status.newBuilder()
+                .setCode(Code.RESOURCE_EXHAUSTED_VALUE)
+                .setMessage("Превышен лимит событий для хаба " + hubId)
+                .addDetails(Any.pack(retryInfo))
+                .build();
+
+        return StatusProto.toStatusRuntimeException(status);
+    }
 }
\ No newline at end of file
@@ -69,7 +69,7 @@ public class GrpcToModelMapper {
         }
     }
 
-    private MotionSensorEvent toMotionSensorEvent(SensorEventProto proto) {
+    public MotionSensorEvent toMotionSensorEvent(SensorEventProto proto) {
         MotionSensorEvent event = new MotionSensorEvent();
         setCommonSensorFields(event, proto);
 
@@ -81,7 +81,7 @@ public class GrpcToModelMapper {
         return event;
     }
 
-    private TemperatureSensorEvent toTemperatureSensorEvent(SensorEventProto proto) {
+    public TemperatureSensorEvent toTemperatureSensorEvent(SensorEventProto proto) {
         TemperatureSensorEvent event = new TemperatureSensorEvent();
         setCommonSensorFields(event, proto);
 
@@ -92,7 +92,7 @@ public class GrpcToModelMapper {
         return event;
     }
 
-    private LightSensorEvent toLightSensorEvent(SensorEventProto proto) {
+    public LightSensorEvent toLightSensorEvent(SensorEventProto proto) {
         LightSensorEvent event = new LightSensorEvent();
         setCommonSensorFields(event, proto);
 
@@ -103,7 +103,7 @@ public class GrpcToModelMapper {
         return event;
     }
 
-    private ClimateSensorEvent toClimateSensorEvent(SensorEventProto proto) {
+    public ClimateSensorEvent toClimateSensorEvent(SensorEventProto proto) {
         ClimateSensorEvent event = new ClimateSensorEvent();
         setCommonSensorFields(event, proto);
 
@@ -115,7 +115,7 @@ public class GrpcToModelMapper {
         return event;
     }
 
-    private SwitchSensorEvent toSwitchSensorEvent(SensorEventProto proto) {
+    public SwitchSensorEvent toSwitchSensorEvent(SensorEventProto proto) {
         SwitchSensorEvent event = new SwitchSensorEvent();
         setCommonSensorFields(event, proto);
 
@@ -211,6 +211,16 @@ public class GrpcToModelMapper {
                 condition.setValue(null);
         }
 
+        if (proto.hasUpperValue()) {
+            condition.setUpperValue(proto.getUpperValue());
+        }
+        if (proto.hasHysteresis()) {
+            condition.setHysteresis(proto.getHysteresis());
+        }
+        if (proto.hasHeldForSeconds()) {
+            condition.setHeldForSeconds(proto.getHeldForSeconds());
+        }
+
         return condition;
     }
 
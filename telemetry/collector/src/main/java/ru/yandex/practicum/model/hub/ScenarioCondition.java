@@ -20,4 +20,10 @@ public class ScenarioCondition {
     private String operation;
 
     private Object value;
+
+    private Integer upperValue;
+
+    private Integer hysteresis;
+
+    private Integer heldForSeconds;
 }
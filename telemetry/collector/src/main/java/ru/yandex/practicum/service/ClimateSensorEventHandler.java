@@ -21,9 +21,9 @@ public class ClimateSensorEventHandler implements SensorEventHandler {
 
     @Override
     public void handle(SensorEventProto event) {
-        log.info("Processing climate sensor event from device: {}", event.getId());
+        log.debug("Processing climate sensor event from device: {}", event.getId());
 
-        var sensorEvent = grpcToModelMapper.toSensorEvent(event);
+        var sensorEvent = grpcToModelMapper.toClimateSensorEvent(event);
         kafkaProducerService.sendSensorEvent(sensorEvent);
     }
 }
\ No newline at end of file
@@ -224,6 +224,8 @@ public class EventMapperService {
                 return ConditionOperation.GREATER_THAN;
             case "LOWER_THAN":
                 return ConditionOperation.LOWER_THAN;
+            case "BETWEEN":
+                return ConditionOperation.BETWEEN;
             default:
                 log.warn("Unknown condition operation: {}, defaulting to EQUALS", operation);
                 return ConditionOperation.EQUALS;
@@ -256,7 +258,10 @@ public class EventMapperService {
         ScenarioCondition.Builder builder = ScenarioCondition.newBuilder()
                 .setSensorId(condition.getSensorId())
                 .setType(mapConditionType(condition.getType()))
-                .setOperation(mapConditionOperation(condition.getOperation()));
+                .setOperation(mapConditionOperation(condition.getOperation()))
+                .setUpperValue(condition.getUpperValue())
+                .setHysteresis(condition.getHysteresis())
+                .setHeldForSeconds(condition.getHeldForSeconds());
 
         Object value = condition.getValue();
         if (value != null) {
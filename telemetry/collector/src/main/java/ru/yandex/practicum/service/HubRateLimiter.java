@@ -0,0 +1,164 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.RateLimitProperties;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Лимитер событий датчиков на уровне хаба.
+ * Для каждой пары (хаб, тип датчика) хранится одно число - теоретическое время прихода
+ * следующего события (GCRA), которое обновляется через CAS без блокировок.
+ * Простаивающие хабы удаляются только плановой очисткой. Пока лимитер заполнен (max-hubs),
+ * события новых хабов пропускаются без учета, чтобы поток подделанных идентификаторов хабов
+ * не превращал каждый запрос в обход всей таблицы.
+ */
+@Slf4j
+@Component
+public class HubRateLimiter {
+
+    private static final SensorEventProto.PayloadCase[] PAYLOAD_CASES = SensorEventProto.PayloadCase.values();
+
+    private final RateLimitProperties properties;
+    private final long[] emissionIntervalNanos = new long[PAYLOAD_CASES.length];
+    private final long[] burstToleranceNanos = new long[PAYLOAD_CASES.length];
+    private final Map<String, HubBucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder totalRejected = new LongAdder();
+    private final LongAdder untrackedAdmitted = new LongAdder();
+
+    public HubRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+
+        for (SensorEventProto.PayloadCase payloadCase : PAYLOAD_CASES) {
+            RateLimitProperties.Limit limit = properties.limitFor(payloadCase);
+            int index = payloadCase.ordinal();
+            if (limit.getEventsPerSecond() <= 0) {
+                emissionIntervalNanos[index] = 0;
+                continue;
+            }
+            emissionIntervalNanos[index] = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getEventsPerSecond());
+            burstToleranceNanos[index] = emissionIntervalNanos[index] * Math.max(limit.getBurst() - 1, 0);
+        }
+    }
+
+    /**
+     * @return 0, если событие допущено, иначе время в наносекундах до появления свободного слота
+     */
+    public long tryAcquire(String hubId, SensorEventProto.PayloadCase payloadCase) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+
+        int index = payloadCase.ordinal();
+        long interval = emissionIntervalNanos[index];
+        if (interval == 0) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        HubBucket bucket = buckets.get(hubId);
+        if (bucket == null) {
+            bucket = registerHub(hubId, now);
+            if (bucket == null) {
+                untrackedAdmitted.increment();
+                return 0;
+            }
+        }
+        bucket.lastSeenNanos = now;
+
+        AtomicLongArray arrivals = bucket.theoreticalArrivals;
+        while (true) {
+            long tat = arrivals.get(index);
+            long allowAt = tat - burstToleranceNanos[index];
+            if (now - allowAt < 0) {
+                bucket.rejected.increment();
+                totalRejected.increment();
+                return allowAt - now;
+            }
+            long next = Math.max(tat, now) + interval;
+            if (arrivals.compareAndSet(index, tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${collector.rate-limit.idle-eviction-ms:600000}")
+    public void evictIdleHubs() {
+        int evicted = evictIdle(System.nanoTime());
+        if (evicted > 0) {
+            log.info("Evicted {} idle hubs from rate limiter, {} remain", evicted, buckets.size());
+        }
+        if (buckets.size() >= properties.getMaxHubs()) {
+            log.warn("Rate limiter is full ({} hubs), events of new hubs are admitted untracked, total: {}",
+                    buckets.size(), untrackedAdmitted.sum());
+        }
+    }
+
+    public long getRejectedCount(String hubId) {
+        HubBucket bucket = buckets.get(hubId);
+        return bucket == null ? 0 : bucket.rejected.sum();
+    }
+
+    public Map<String, Long> getRejectionsByHub() {
+        Map<String, Long> result = new HashMap<>();
+        buckets.forEach((hubId, bucket) -> {
+            long rejected = bucket.rejected.sum();
+            if (rejected > 0) {
+                result.put(hubId, rejected);
+            }
+        });
+        return result;
+    }
+
+    public long getTotalRejected() {
+        return totalRejected.sum();
+    }
+
+    public int getTrackedHubCount() {
+        return buckets.size();
+    }
+
+    // события, пропущенные без учета из-за заполненного лимитера
+    public long getUntrackedAdmittedCount() {
+        return untrackedAdmitted.sum();
+    }
+
+    /**
+     * @return состояние хаба или null, если лимитер заполнен; размер проверяется без блокировки,
+     * поэтому при одновременной регистрации лимит может быть превышен на число потоков
+     */
+    private HubBucket registerHub(String hubId, long now) {
+        if (buckets.size() >= properties.getMaxHubs()) {
+            return null;
+        }
+        return buckets.computeIfAbsent(hubId, id -> new HubBucket(now));
+    }
+
+    private int evictIdle(long now) {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleEvictionMs());
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> now - bucket.lastSeenNanos > idleNanos);
+        return before - buckets.size();
+    }
+
+    private static final class HubBucket {
+        private final AtomicLongArray theoreticalArrivals = new AtomicLongArray(PAYLOAD_CASES.length);
+        private final LongAdder rejected = new LongAdder();
+        private volatile long lastSeenNanos;
+
+        private HubBucket(long now) {
+            for (int i = 0; i < PAYLOAD_CASES.length; i++) {
+                theoreticalArrivals.set(i, now);
+            }
+            this.lastSeenNanos = now;
+        }
+    }
+}
@@ -2,31 +2,41 @@ package ru.yandex.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.SchemaNormalization;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
+import ru.yandex.practicum.logging.SampledLogger;
 import ru.yandex.practicum.model.HubEvent;
 import ru.yandex.practicum.model.SensorEvent;
+import ru.yandex.practicum.serialization.AvroSchemaHeaders;
+
+import java.time.Duration;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class KafkaProducerService {
 
+    private static final SampledLogger sampledLog =
+            new SampledLogger(KafkaProducerService.class, 1000, Duration.ofSeconds(10));
+
     private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final EventMapperService eventMapperService;
 
     private static final String SENSORS_TOPIC = "telemetry.sensors.v1";
     private static final String HUBS_TOPIC = "telemetry.hubs.v1";
+    // анализатор по отпечатку выбирает схему записи, поэтому схему событий хаба можно расширять
+    private static final byte[] HUB_EVENT_SCHEMA_FINGERPRINT = AvroSchemaHeaders.encodeFingerprint(
+            SchemaNormalization.parsingFingerprint64(HubEventAvro.getClassSchema()));
 
     public void sendSensorEvent(SensorEvent event) {
         try {
-            log.info("Starting to send sensor event: {}", event.getClass().getSimpleName());
-
             byte[] avroBytes = eventMapperService.toAvroBytes(event);
-            log.info("Converted to AVRO: {} bytes", avroBytes.length);
-
             kafkaTemplate.send(SENSORS_TOPIC, avroBytes);
-            log.info("Sent to Kafka topic: {}", SENSORS_TOPIC);
+
+            sampledLog.info("Sent sensor event {} to Kafka topic: " + SENSORS_TOPIC, event.getType());
 
         } catch (Exception e) {
             log.error("Failed to send sensor event to Kafka", e);
@@ -36,13 +46,15 @@ public class KafkaProducerService {
 
     public void sendHubEvent(HubEvent event) {
         try {
-            log.info("Starting to send hub event: {}", event.getClass().getSimpleName());
-
             byte[] avroBytes = eventMapperService.toAvroBytes(event);
-            log.info("Converted to AVRO: {} bytes", avroBytes.length);
 
-            kafkaTemplate.send(HUBS_TOPIC, avroBytes);
-            log.info("Sent to Kafka topic: {}", HUBS_TOPIC);
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(HUBS_TOPIC, avroBytes);
+            record.headers().add(AvroSchemaHeaders.SCHEMA_FINGERPRINT, HUB_EVENT_SCHEMA_FINGERPRINT);
+            kafkaTemplate.send(record);
+
+            log.debug("Sent hub event {} ({} bytes) to Kafka topic: {}",
+                    event.getClass().getSimpleName(), avroBytes.length, HUBS_TOPIC);
+            sampledLog.info("Sent hub event {} to Kafka topic: " + HUBS_TOPIC, event.getClass().getSimpleName());
 
         } catch (Exception e) {
             log.error("Failed to send hub event to Kafka", e);
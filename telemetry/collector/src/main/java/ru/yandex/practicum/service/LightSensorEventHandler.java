@@ -21,9 +21,9 @@ public class LightSensorEventHandler implements SensorEventHandler {
 
     @Override
     public void handle(SensorEventProto event) {
-        log.info("Processing light sensor event from device: {}", event.getId());
+        log.debug("Processing light sensor event from device: {}", event.getId());
 
-        var sensorEvent = grpcToModelMapper.toSensorEvent(event);
+        var sensorEvent = grpcToModelMapper.toLightSensorEvent(event);
         kafkaProducerService.sendSensorEvent(sensorEvent);
     }
 }
@@ -21,9 +21,9 @@ public class MotionSensorEventHandler implements SensorEventHandler {
 
     @Override
     public void handle(SensorEventProto event) {
-        log.info("Processing motion sensor event from device: {}", event.getId());
+        log.debug("Processing motion sensor event from device: {}", event.getId());
 
-        var sensorEvent = grpcToModelMapper.toSensorEvent(event);
+        var sensorEvent = grpcToModelMapper.toMotionSensorEvent(event);
         kafkaProducerService.sendSensorEvent(sensorEvent);
     }
 }
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.service;
+
+import com.google.protobuf.ByteString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.config.DeduplicationProperties;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Подавляет повторные показания датчика, побайтно совпадающие с последним отправленным,
+ * пока не истекло окно. После окна одно показание пропускается, чтобы агрегатор
+ * продолжал обновлять таймстемп устройства.
+ * Устаревшие записи удаляются периодической очисткой, а не на пути обработки события:
+ * при заполненном кэше новое устройство просто не отслеживается до следующей очистки.
+ */
+@Slf4j
+@Component
+public class SensorEventDeduplicator {
+
+    private final DeduplicationProperties properties;
+    private final Map<DeviceKey, LastReading> lastReadings = new ConcurrentHashMap<>();
+    private final LongAdder suppressed = new LongAdder();
+
+    public SensorEventDeduplicator(DeduplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isDuplicate(SensorEventProto event) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+
+        ByteString payload = payloadBytes(event);
+        if (payload == null) {
+            return false;
+        }
+
+        long timestamp = event.getTimestamp().getSeconds() * 1000 + event.getTimestamp().getNanos() / 1_000_000;
+        DeviceKey key = new DeviceKey(event.getHubId(), event.getId());
+        LastReading previous = lastReadings.get(key);
+
+        if (previous != null
+                && previous.payloadCase() == event.getPayloadCase()
+                && timestamp >= previous.forwardedAt()
+                && timestamp - previous.forwardedAt() < properties.getWindowMs()
+                && previous.payload().equals(payload)) {
+            suppressed.increment();
+            return true;
+        }
+
+        if (previous == null && lastReadings.size() >= properties.getMaxEntries()) {
+            return false;
+        }
+
+        lastReadings.put(key, new LastReading(event.getPayloadCase(), payload, timestamp,
+                System.currentTimeMillis()));
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${collector.dedup.eviction-interval-ms:10000}")
+    public void evictExpiredReadings() {
+        int evicted = evictExpired(System.currentTimeMillis());
+        if (evicted > 0) {
+            log.debug("Evicted {} expired readings from dedup cache, {} remain", evicted, lastReadings.size());
+        }
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    public int getTrackedDeviceCount() {
+        return lastReadings.size();
+    }
+
+    private int evictExpired(long now) {
+        // окно отсчитывается по времени сохранения записи: таймстемпы хабов могут отставать от часов коллектора
+        int before = lastReadings.size();
+        lastReadings.values().removeIf(reading -> now - reading.storedAt() >= properties.getWindowMs());
+        return before - lastReadings.size();
+    }
+
+    private ByteString payloadBytes(SensorEventProto event) {
+        return switch (event.getPayloadCase()) {
+            case MOTION_SENSOR -> event.getMotionSensor().toByteString();
+            case TEMPERATURE_SENSOR -> event.getTemperatureSensor().toByteString();
+            case LIGHT_SENSOR -> event.getLightSensor().toByteString();
+            case CLIMATE_SENSOR -> event.getClimateSensor().toByteString();
+            case SWITCH_SENSOR -> event.getSwitchSensor().toByteString();
+            case PAYLOAD_NOT_SET -> null;
+        };
+    }
+
+    private record DeviceKey(String hubId, String deviceId) {
+    }
+
+    private record LastReading(SensorEventProto.PayloadCase payloadCase, ByteString payload, long forwardedAt,
+                               long storedAt) {
+    }
+}
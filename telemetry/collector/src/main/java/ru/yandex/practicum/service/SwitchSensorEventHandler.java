@@ -21,9 +21,9 @@ public class SwitchSensorEventHandler implements SensorEventHandler {
 
     @Override
     public void handle(SensorEventProto event) {
-        log.info("Processing switch sensor event from device: {}", event.getId());
+        log.debug("Processing switch sensor event from device: {}", event.getId());
 
-        var sensorEvent = grpcToModelMapper.toSensorEvent(event);
+        var sensorEvent = grpcToModelMapper.toSwitchSensorEvent(event);
         kafkaProducerService.sendSensorEvent(sensorEvent);
     }
 }
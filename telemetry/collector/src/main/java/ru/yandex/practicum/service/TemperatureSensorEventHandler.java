@@ -21,9 +21,9 @@ public class TemperatureSensorEventHandler implements SensorEventHandler {
 
     @Override
     public void handle(SensorEventProto event) {
-        log.info("Processing temperature sensor event from device: {}", event.getId());
+        log.debug("Processing temperature sensor event from device: {}", event.getId());
 
-        var sensorEvent = grpcToModelMapper.toSensorEvent(event);
+        var sensorEvent = grpcToModelMapper.toTemperatureSensorEvent(event);
         kafkaProducerService.sendSensorEvent(sensorEvent);
     }
 }
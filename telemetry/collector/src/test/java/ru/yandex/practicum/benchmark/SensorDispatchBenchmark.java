@@ -0,0 +1,169 @@
+package ru.yandex.practicum.benchmark;
+
+import com.google.protobuf.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.grpc.GrpcToModelMapper;
+import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.model.SensorEvent;
+import ru.yandex.practicum.service.ClimateSensorEventHandler;
+import ru.yandex.practicum.service.KafkaProducerService;
+import ru.yandex.practicum.service.LightSensorEventHandler;
+import ru.yandex.practicum.service.MotionSensorEventHandler;
+import ru.yandex.practicum.service.SensorEventHandler;
+import ru.yandex.practicum.service.SwitchSensorEventHandler;
+import ru.yandex.practicum.service.TemperatureSensorEventHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выбора обработчика и преобразования события датчика в модель на одно событие.
+ * hashMapDispatch повторяет прежнюю схему (HashMap с containsKey+get и общий switch маппера),
+ * arrayDispatch - текущую (таблица по ordinal и типизированный метод маппера). Отправка в Kafka
+ * заменена заглушкой, чтобы сериализация не заслоняла разницу.
+ * Запуск: main этого класса из IDE или
+ * mvn -pl telemetry/collector test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.benchmark.SensorDispatchBenchmark
+ * Выделение памяти на событие печатается профилировщиком gc (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorDispatchBenchmark {
+
+    private SensorEventProto[] events;
+    private int next;
+
+    private SinkProducer producer;
+    private SensorEventHandler[] handlerTable;
+    private Map<SensorEventProto.PayloadCase, SensorEventHandler> handlerMap;
+
+    @Setup
+    public void setUp() {
+        GrpcToModelMapper mapper = new GrpcToModelMapper();
+        producer = new SinkProducer();
+
+        List<SensorEventHandler> handlers = List.of(
+                new ClimateSensorEventHandler(producer, mapper),
+                new LightSensorEventHandler(producer, mapper),
+                new MotionSensorEventHandler(producer, mapper),
+                new SwitchSensorEventHandler(producer, mapper),
+                new TemperatureSensorEventHandler(producer, mapper));
+        handlerTable = new SensorEventHandler[SensorEventProto.PayloadCase.values().length];
+        handlerMap = new HashMap<>();
+        for (SensorEventHandler handler : handlers) {
+            handlerTable[handler.getMessageType().ordinal()] = handler;
+            handlerMap.put(handler.getMessageType(), new SwitchMappingHandler(handler.getMessageType(), producer, mapper));
+        }
+
+        events = new SensorEventProto[]{
+                event("climate-1").setClimateSensor(ClimateSensorProto.newBuilder()
+                        .setTemperatureC(21).setHumidity(40).setCo2Level(600)).build(),
+                event("light-1").setLightSensor(LightSensorProto.newBuilder()
+                        .setLinkQuality(90).setLuminosity(300)).build(),
+                event("motion-1").setMotionSensor(MotionSensorProto.newBuilder()
+                        .setLinkQuality(80).setMotion(true).setVoltage(3)).build(),
+                event("switch-1").setSwitchSensor(SwitchSensorProto.newBuilder().setState(true)).build(),
+                event("temperature-1").setTemperatureSensor(TemperatureSensorProto.newBuilder()
+                        .setTemperatureC(20).setTemperatureF(68)).build()
+        };
+    }
+
+    @Benchmark
+    public SensorEvent arrayDispatch() {
+        SensorEventProto event = nextEvent();
+        SensorEventHandler handler = handlerTable[event.getPayloadCase().ordinal()];
+        if (handler == null) {
+            throw new IllegalArgumentException("No handler for " + event.getPayloadCase());
+        }
+        handler.handle(event);
+        return producer.last;
+    }
+
+    @Benchmark
+    public SensorEvent hashMapDispatch() {
+        SensorEventProto event = nextEvent();
+        if (!handlerMap.containsKey(event.getPayloadCase())) {
+            throw new IllegalArgumentException("No handler for " + event.getPayloadCase());
+        }
+        handlerMap.get(event.getPayloadCase()).handle(event);
+        return producer.last;
+    }
+
+    private SensorEventProto nextEvent() {
+        SensorEventProto event = events[next];
+        next = next + 1 == events.length ? 0 : next + 1;
+        return event;
+    }
+
+    private static SensorEventProto.Builder event(String id) {
+        return SensorEventProto.newBuilder()
+                .setId(id)
+                .setHubId("hub-1")
+                .setTimestamp(Timestamp.newBuilder().setSeconds(1_700_000_000L).setNanos(1000));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SensorDispatchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Прежний обработчик: тип события повторно разбирается общим switch маппера.
+     */
+    private record SwitchMappingHandler(SensorEventProto.PayloadCase type, KafkaProducerService producer,
+                                        GrpcToModelMapper mapper) implements SensorEventHandler {
+
+        @Override
+        public SensorEventProto.PayloadCase getMessageType() {
+            return type;
+        }
+
+        @Override
+        public void handle(SensorEventProto event) {
+            producer.sendSensorEvent(mapper.toSensorEvent(event));
+        }
+    }
+
+    /**
+     * Вместо отправки в Kafka запоминает последнее событие, его поглощает JMH.
+     */
+    private static final class SinkProducer extends KafkaProducerService {
+
+        private SensorEvent last;
+
+        private SinkProducer() {
+            super(null, null);
+        }
+
+        @Override
+        public void sendSensorEvent(SensorEvent event) {
+            last = event;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Обертка над SLF4J для горячих путей обработки событий.
+ * <ul>
+ *     <li>{@code info/warn} пишут примерно одно сообщение из {@code sampleRate};</li>
+ *     <li>{@code infoForKey/warnForKey} пишут не чаще одного сообщения за {@code keyInterval} на ключ.</li>
+ * </ul>
+ * Для одного и двух аргументов (у info - и для трех) есть отдельные перегрузки, чтобы вызов на горячем пути
+ * не создавал массив varargs; примитивные аргументы все равно упаковываются при вызове,
+ * поэтому на горячем пути их лучше не передавать.
+ */
+public final class SampledLogger {
+
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private final Logger delegate;
+    private final int sampleRate;
+    private final long keyIntervalNanos;
+    private final Map<Object, AtomicLong> lastLoggedByKey = new ConcurrentHashMap<>();
+
+    public SampledLogger(Class<?> type, int sampleRate, Duration keyInterval) {
+        this(LoggerFactory.getLogger(type), sampleRate, keyInterval);
+    }
+
+    public SampledLogger(Logger delegate, int sampleRate, Duration keyInterval) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+        this.keyIntervalNanos = keyInterval.toNanos();
+    }
+
+    public void info(String format, Object arg) {
+        if (delegate.isInfoEnabled() && sampled()) {
+            delegate.info(format, arg);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (delegate.isInfoEnabled() && sampled()) {
+            delegate.info(format, arg1, arg2);
+        }
+    }
+
+    // массив для SLF4J создается только для записываемого сообщения
+    public void info(String format, Object arg1, Object arg2, Object arg3) {
+        if (delegate.isInfoEnabled() && sampled()) {
+            delegate.info(format, arg1, arg2, arg3);
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (delegate.isInfoEnabled() && sampled()) {
+            delegate.info(format, args);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (delegate.isWarnEnabled() && sampled()) {
+            delegate.warn(format, arg);
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (delegate.isWarnEnabled() && sampled()) {
+            delegate.warn(format, arg1, arg2);
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (delegate.isWarnEnabled() && sampled()) {
+            delegate.warn(format, args);
+        }
+    }
+
+    public void infoForKey(Object key, String format, Object arg) {
+        if (delegate.isInfoEnabled() && acquire(key)) {
+            delegate.info(format, arg);
+        }
+    }
+
+    public void infoForKey(Object key, String format, Object arg1, Object arg2) {
+        if (delegate.isInfoEnabled() && acquire(key)) {
+            delegate.info(format, arg1, arg2);
+        }
+    }
+
+    public void infoForKey(Object key, String format, Object... args) {
+        if (delegate.isInfoEnabled() && acquire(key)) {
+            delegate.info(format, args);
+        }
+    }
+
+    public void warnForKey(Object key, String format, Object arg) {
+        if (delegate.isWarnEnabled() && acquire(key)) {
+            delegate.warn(format, arg);
+        }
+    }
+
+    public void warnForKey(Object key, String format, Object arg1, Object arg2) {
+        if (delegate.isWarnEnabled() && acquire(key)) {
+            delegate.warn(format, arg1, arg2);
+        }
+    }
+
+    public void warnForKey(Object key, String format, Object... args) {
+        if (delegate.isWarnEnabled() && acquire(key)) {
+            delegate.warn(format, args);
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    private boolean acquire(Object key) {
+        long now = System.nanoTime();
+        AtomicLong lastLogged = lastLoggedByKey.get(key);
+        if (lastLogged == null) {
+            if (lastLoggedByKey.size() >= MAX_TRACKED_KEYS) {
+                lastLoggedByKey.clear();
+            }
+            lastLogged = lastLoggedByKey.putIfAbsent(key, new AtomicLong(now));
+            if (lastLogged == null) {
+                return true;
+            }
+        }
+        long previous = lastLogged.get();
+        return now - previous >= keyIntervalNanos && lastLogged.compareAndSet(previous, now);
+    }
+}
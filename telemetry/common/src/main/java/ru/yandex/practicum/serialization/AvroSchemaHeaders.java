@@ -0,0 +1,30 @@
+package ru.yandex.practicum.serialization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Заголовок Kafka с отпечатком схемы, которой записано Avro-сообщение (CRC-64-AVRO канонической формы,
+ * SchemaNormalization.parsingFingerprint64). По нему читатель выбирает схему записи и разрешает ее
+ * в свою схему, поэтому producer и consumer можно обновлять по очереди.
+ */
+public final class AvroSchemaHeaders {
+
+    public static final String SCHEMA_FINGERPRINT = "avro.schema.fingerprint";
+
+    private AvroSchemaHeaders() {
+    }
+
+    public static byte[] encodeFingerprint(long fingerprint) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(fingerprint).array();
+    }
+
+    /**
+     * @return отпечаток или null, если заголовка нет или он некорректен
+     */
+    public static Long decodeFingerprint(byte[] header) {
+        if (header == null || header.length != Long.BYTES) {
+            return null;
+        }
+        return ByteBuffer.wrap(header).getLong();
+    }
+}
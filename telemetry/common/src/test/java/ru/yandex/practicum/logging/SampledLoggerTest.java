@@ -0,0 +1,101 @@
+package ru.yandex.practicum.logging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SampledLoggerTest {
+
+    private final Logger delegate = mock(Logger.class);
+
+    @BeforeEach
+    void setUp() {
+        when(delegate.isInfoEnabled()).thenReturn(true);
+        when(delegate.isWarnEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void writesEveryMessageWithRateOne() {
+        SampledLogger logger = new SampledLogger(delegate, 1, Duration.ofSeconds(10));
+
+        logger.info("one {}", "a");
+        logger.info("two {} {}", "a", "b");
+        logger.info("three {} {} {}", "a", "b", "c");
+        logger.info("four {} {} {} {}", "a", "b", "c", "d");
+        logger.warn("warn {} {}", "a", "b");
+
+        verify(delegate).info("one {}", "a");
+        verify(delegate).info("two {} {}", "a", "b");
+        verify(delegate).info("three {} {} {}", "a", "b", "c");
+        verify(delegate).info("four {} {} {} {}", "a", "b", "c", "d");
+        verify(delegate).warn("warn {} {}", "a", "b");
+    }
+
+    @Test
+    void writesAboutOneOfSampleRateMessages() {
+        SampledLogger logger = new SampledLogger(delegate, 100, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 100_000; i++) {
+            logger.info("event {}", "a");
+        }
+
+        // ожидается около 1000 сообщений; границы с большим запасом на случайность выборки
+        long written = mockingDetails(delegate).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("info"))
+                .count();
+        assertThat(written).isBetween(700L, 1300L);
+    }
+
+    @Test
+    void skipsDisabledLevel() {
+        when(delegate.isInfoEnabled()).thenReturn(false);
+        SampledLogger logger = new SampledLogger(delegate, 1, Duration.ofSeconds(10));
+
+        logger.info("event {}", "a");
+        logger.infoForKey("key", "event {}", "a");
+
+        verify(delegate, never()).info(anyString(), any(Object.class));
+    }
+
+    @Test
+    void writesOncePerKeyWithinInterval() {
+        SampledLogger logger = new SampledLogger(delegate, 1, Duration.ofHours(1));
+
+        logger.warnForKey("scenario-1", "no conditions {}", "scenario-1");
+        logger.warnForKey("scenario-1", "no conditions {}", "scenario-1");
+        logger.warnForKey("scenario-2", "no conditions {}", "scenario-2");
+
+        verify(delegate, times(1)).warn("no conditions {}", "scenario-1");
+        verify(delegate, times(1)).warn("no conditions {}", "scenario-2");
+    }
+
+    @Test
+    void writesAgainAfterKeyInterval() throws InterruptedException {
+        SampledLogger logger = new SampledLogger(delegate, 1, Duration.ofMillis(20));
+
+        logger.infoForKey("poll", "processed {} {}", "a", "b");
+        Thread.sleep(30);
+        logger.infoForKey("poll", "processed {} {}", "a", "b");
+
+        verify(delegate, times(2)).info("processed {} {}", "a", "b");
+    }
+
+    @Test
+    void rejectsNonPositiveSampleRate() {
+        assertThatThrownBy(() -> new SampledLogger(delegate, 0, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}